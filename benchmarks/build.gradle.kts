@@ -0,0 +1,32 @@
+plugins {
+  java
+  id("me.champeau.jmh") version "0.7.2"
+}
+
+repositories {
+  mavenCentral()
+  maven("https://repo.papermc.io/repository/maven-public/")
+}
+
+java {
+  toolchain.languageVersion = JavaLanguageVersion.of(21)
+}
+
+dependencies {
+  // Benchmarks live in the plugin's package to reach its package-private classes
+  jmh(project(":"))
+  jmh("io.papermc.paper:paper-api:1.21.5-R0.1-SNAPSHOT")
+  jmh("com.google.code.gson:gson:2.10.1")
+}
+
+jmh {
+  benchmarkMode = listOf("thrpt")
+  timeUnit = "s"
+  profilers = listOf("gc")
+  fork = 1
+  warmupIterations = 3
+  iterations = 5
+  resultFormat = "JSON"
+  // -Pbenchmarks=<regex> runs a subset, e.g. -Pbenchmarks=Index|Sweep
+  providers.gradleProperty("benchmarks").orNull?.let { includes = listOf(it) }
+}
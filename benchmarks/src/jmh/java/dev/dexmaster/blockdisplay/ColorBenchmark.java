@@ -0,0 +1,39 @@
+package dev.dexmaster.blockdisplay;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+// Color parsing and formatting used by every command, every record read from storage
+// and every record written back
+@State(Scope.Benchmark)
+public class ColorBenchmark {
+
+    private static final String[] NAMES = {
+        "black", "dark_blue", "dark_green", "dark_aqua", "dark_red", "dark_purple", "gold", "gray",
+        "dark_gray", "blue", "green", "aqua", "red", "light_purple", "yellow", "WHITE"
+    };
+    private static final String[] HEX = {
+        "#3a7bd5", "#ff8800", "#00ffaa", "#123456", "#abcdef", "#000001", "#fffffe", "#7f7f7f"
+    };
+    private static final int[] RGB = {
+        0x55FF55, 0xFF5555, 0x3A7BD5, 0xFF8800, 0xFFFFFF, 0x000001, 0x5555FF, 0xABCDEF
+    };
+
+    private int cursor;
+
+    @Benchmark
+    public int parseName() {
+        return DisplayColors.parse(NAMES[cursor++ & 15]);
+    }
+
+    @Benchmark
+    public int parseHex() {
+        return DisplayColors.parse(HEX[cursor++ & 7]);
+    }
+
+    @Benchmark
+    public String format() {
+        return DisplayColors.format(RGB[cursor++ & 7]);
+    }
+}
@@ -0,0 +1,77 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Support-block lookups: the removal path of block events and the duplicate check of /bd spawn
+@State(Scope.Benchmark)
+public class IndexBenchmark {
+
+    private static final int PROBES = 1 << 14;
+
+    @Param({"1000", "100000", "1000000"})
+    public int displays;
+
+    private final UUID worldId = UUID.randomUUID();
+    private DisplayIndex index;
+    private int[] hitX, hitY, hitZ;
+    private int[] missX, missY, missZ;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        List<DisplayRecord> records = SyntheticDisplays.records(worldId, displays);
+        index = new DisplayIndex();
+        for (DisplayRecord record : records) {
+            index.put(record);
+        }
+
+        SplittableRandom random = new SplittableRandom(42);
+        int side = SyntheticDisplays.side(displays);
+        hitX = new int[PROBES];
+        hitY = new int[PROBES];
+        hitZ = new int[PROBES];
+        missX = new int[PROBES];
+        missY = new int[PROBES];
+        missZ = new int[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            DisplayRecord record = records.get(random.nextInt(records.size()));
+            hitX[i] = record.x();
+            hitY[i] = record.y();
+            hitZ[i] = record.z();
+            // Half the misses land in populated chunks, half far outside them
+            missX[i] = (i & 1) == 0 ? random.nextInt(side) : 100000 + random.nextInt(10000);
+            missY[i] = (i & 1) == 0 ? 200 : 64;
+            missZ[i] = (i & 1) == 0 ? random.nextInt(side) : 100000 + random.nextInt(10000);
+        }
+    }
+
+    @Benchmark
+    public DisplayRecord lookupHit() {
+        int i = cursor++ & (PROBES - 1);
+        return index.get(worldId, hitX[i], hitY[i], hitZ[i]);
+    }
+
+    // Most block events (physics, fluids, fading) miss every display
+    @Benchmark
+    public DisplayRecord lookupMiss() {
+        int i = cursor++ & (PROBES - 1);
+        return index.get(worldId, missX[i], missY[i], missZ[i]);
+    }
+
+    @Benchmark
+    public boolean duplicateCheck() {
+        int i = cursor++ & (PROBES - 1);
+        // Alternate between occupied and free targets like players spawning next to existing displays
+        return (i & 1) == 0
+                ? index.contains(worldId, hitX[i], hitY[i], hitZ[i])
+                : index.contains(worldId, missX[i], missY[i], missZ[i]);
+    }
+}
@@ -0,0 +1,110 @@
+package dev.dexmaster.blockdisplay;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+// Region shard writes and reads for the whole population, with the legacy displays.json
+// round trip they replaced as a baseline
+@State(Scope.Benchmark)
+public class PersistenceBenchmark {
+
+    private static final String WORLD = "world";
+
+    @Param({"1000", "100000", "1000000"})
+    public int displays;
+
+    private final Gson gson = new Gson();
+    private Path folder;
+    private File worldFolder;
+    private LongKeyMap<LongKeyMap<DisplayData>> regions;
+    private List<DisplayData> legacy;
+    private String legacyJson;
+
+    @Setup
+    public void setup() throws IOException {
+        folder = Files.createTempDirectory("bd-bench");
+        worldFolder = new File(folder.toFile(), WORLD);
+        worldFolder.mkdirs();
+
+        regions = new LongKeyMap<>();
+        legacy = new ArrayList<>(displays);
+        for (DisplayRecord record : SyntheticDisplays.records(UUID.randomUUID(), displays)) {
+            DisplayData data = SyntheticDisplays.toData(WORLD, record);
+            regions.computeIfAbsent(RegionShard.regionKeyOf(record.blockKey), key -> new LongKeyMap<>())
+                    .put(record.blockKey, data);
+            legacy.add(data);
+        }
+        legacyJson = gson.toJson(legacy);
+        writeShards();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(folder)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public int writeShards() throws IOException {
+        int[] written = {0};
+        IOException[] failure = {null};
+        regions.forEach((regionKey, shard) -> {
+            try {
+                RegionShard.write(worldFolder, regionKey, shard);
+                written[0]++;
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return written[0];
+    }
+
+    @Benchmark
+    public int readShards() throws IOException {
+        int[] read = {0};
+        IOException[] failure = {null};
+        regions.forEach((regionKey, shard) -> {
+            try {
+                read[0] += RegionShard.read(worldFolder, WORLD, regionKey).size();
+            } catch (IOException e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return read[0];
+    }
+
+    @Benchmark
+    public byte[] legacySave() {
+        return gson.toJson(legacy).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<DisplayData> legacyLoad() {
+        return gson.fromJson(legacyJson, new TypeToken<List<DisplayData>>(){}.getType());
+    }
+}
@@ -0,0 +1,63 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// One full failsafe lap without the world access: snapshot every chunk bucket and run the
+// tracking guard of verifyDisplay on each record. World and entity checks need a server.
+@State(Scope.Benchmark)
+public class SweepBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int displays;
+
+    private final UUID worldId = UUID.randomUUID();
+    private DisplayIndex index;
+    private List<ChunkBucket> buckets;
+
+    @Setup
+    public void setup() {
+        index = SyntheticDisplays.index(worldId, displays);
+        buckets = new ArrayList<>();
+        int chunks = (SyntheticDisplays.side(displays) >> 4) + 1;
+        for (int cx = 0; cx < chunks; cx++) {
+            for (int cz = 0; cz < chunks; cz++) {
+                ChunkBucket bucket = index.bucket(worldId, cx, cz);
+                if (bucket != null) {
+                    buckets.add(bucket);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public int sweepLap() {
+        int verified = 0;
+        for (ChunkBucket bucket : buckets) {
+            for (DisplayRecord record : bucket.snapshot()) {
+                if (index.get(record.worldId, record.blockKey) == record && record.mesh == null) {
+                    verified++;
+                }
+            }
+        }
+        return verified;
+    }
+
+    @Benchmark
+    public int meshLap() {
+        int meshes = 0;
+        for (ChunkBucket bucket : buckets) {
+            List<DisplayRecord> records = new ArrayList<>(bucket.size());
+            bucket.forEach(records::add);
+            meshes += GreedyMesher.mesh(records).size();
+        }
+        return meshes;
+    }
+}
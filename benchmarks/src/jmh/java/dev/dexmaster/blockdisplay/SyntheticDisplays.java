@@ -0,0 +1,67 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.bukkit.entity.Display;
+
+import net.kyori.adventure.text.format.NamedTextColor;
+
+// Deterministic display layouts shared by the benchmarks: a square floor of 4-high columns,
+// so full chunks hold 1024 displays like a highlighted build
+final class SyntheticDisplays {
+
+    static final int MIN_Y = 60;
+    static final int HEIGHT = 4;
+    static final int[] COLORS = {
+        NamedTextColor.RED.value(), NamedTextColor.GREEN.value(), NamedTextColor.AQUA.value(), 0x3A7BD5
+    };
+    // Block data needs a running server, the benchmarks never spawn entities
+    static final DisplayTemplate TEMPLATE = new DisplayTemplate("default", null, COLORS[0], new Display.Brightness(15, 15), 1f, 1f, null);
+
+    private SyntheticDisplays() {
+    }
+
+    static int side(int count) {
+        return (int) Math.ceil(Math.sqrt((double) count / HEIGHT));
+    }
+
+    static List<DisplayRecord> records(UUID worldId, int count) {
+        int side = side(count);
+        List<DisplayRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int column = i / HEIGHT;
+            int x = column % side;
+            int z = column / side;
+            int y = MIN_Y + i % HEIGHT;
+            // Color changes per 8x8 patch so merged cuboids stay realistic
+            int color = COLORS[((x >> 3) + (z >> 3)) & 3];
+            records.add(new DisplayRecord(worldId, BlockKey.pack(x, y, z), null, TEMPLATE, color, null, null, 0.99999, -1.0, 0.99999));
+        }
+        return records;
+    }
+
+    static DisplayIndex index(UUID worldId, int count) {
+        DisplayIndex index = new DisplayIndex();
+        for (DisplayRecord record : records(worldId, count)) {
+            index.put(record);
+        }
+        return index;
+    }
+
+    static DisplayData toData(String world, DisplayRecord record) {
+        DisplayData data = new DisplayData();
+        data.world = world;
+        data.x = record.x();
+        data.y = record.y();
+        data.z = record.z();
+        data.glowColor = DisplayColors.format(record.glowColor);
+        data.material = "STONE";
+        data.template = record.template.name;
+        data.offsetX = record.offsetX;
+        data.offsetY = record.offsetY;
+        data.offsetZ = record.offsetZ;
+        return data;
+    }
+}
@@ -13,9 +13,19 @@ java {
   toolchain.languageVersion = JavaLanguageVersion.of(21)
 }
 
+repositories {
+  mavenCentral()
+  maven("https://repo.papermc.io/repository/maven-public/")
+}
+
 dependencies {
   paperweight.paperDevBundle("1.21.5-R0.1-SNAPSHOT")
   implementation("com.google.code.gson:gson:2.10.1")
+  // Integration suite: the real plugin on a mock server
+  testImplementation("org.mockbukkit.mockbukkit:mockbukkit-v1.21:4.45.0")
+  testImplementation(platform("org.junit:junit-bom:5.12.2"))
+  testImplementation("org.junit.jupiter:junit-jupiter")
+  testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 }
 
 tasks {
@@ -27,6 +37,22 @@ tasks {
     options.encoding = Charsets.UTF_8.name()
   }
   
+  test {
+    useJUnitPlatform()
+    maxHeapSize = "2g"
+    // -PstormDisplays=1000,20000,1000000 picks the populations, -PstormCheck compares handler times
+    // with the recorded baseline (-PstormTolerance=2 loosens it), -PstormRecord writes this
+    // machine's numbers to build/storm/baseline.properties
+    providers.gradleProperty("stormDisplays").orNull?.let { systemProperty("storm.displays", it) }
+    if (providers.gradleProperty("stormCheck").isPresent) {
+      systemProperty("storm.check", "true")
+    }
+    providers.gradleProperty("stormTolerance").orNull?.let { systemProperty("storm.tolerance", it) }
+    if (providers.gradleProperty("stormRecord").isPresent) {
+      systemProperty("storm.record", layout.buildDirectory.file("storm/baseline.properties").get().asFile.path)
+    }
+  }
+  
   shadowJar {
     archiveClassifier.set("")
     archiveFileName.set("BlockDisplay-${project.version}.jar")
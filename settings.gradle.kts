@@ -3,3 +3,5 @@ plugins {
 }
 
 rootProject.name = "paperweight-test-plugin"
+
+include("benchmarks")
@@ -0,0 +1,96 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.ArrayDeque;
+
+import org.bukkit.World;
+
+// Drives animated displays from the global tick. Chunks holding animated entities wait in phase
+// buckets keyed by the tick of their next keyframe; each tick only the bucket that is due gets
+// dispatched, capped per tick, and the chunk's region applies the keyframe to all its animated
+// entities and books the chunk into its next bucket. Chunks nobody can see are only re-checked.
+final class AnimationEngine implements Runnable {
+
+    private final BlockDisplayPlugin plugin;
+    // Due tick -> chunks whose next keyframe starts then
+    private final LongKeyMap<ArrayDeque<ChunkBucket>> phases = new LongKeyMap<>();
+    // Due chunks left over when the per-tick cap was reached
+    private final ArrayDeque<ChunkBucket> backlog = new ArrayDeque<>();
+
+    private int chunksPerTick;
+    private int idleCheckTicks;
+    private volatile long tick;
+
+    AnimationEngine(BlockDisplayPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    synchronized void configure(int chunksPerTick, int idleCheckTicks) {
+        this.chunksPerTick = Math.max(1, chunksPerTick);
+        this.idleCheckTicks = Math.max(1, idleCheckTicks);
+    }
+
+    long tick() {
+        return tick;
+    }
+
+    synchronized int idleCheckTicks() {
+        return idleCheckTicks;
+    }
+
+    // Starts animating a chunk from the next tick; a chunk already booked keeps its phase
+    synchronized void start(ChunkBucket bucket) {
+        if (!bucket.animationQueued) {
+            bucket.animationQueued = true;
+            book(bucket, tick + 1);
+        }
+    }
+
+    // Called by the chunk's region after a keyframe; the chunk stays booked
+    synchronized void reschedule(ChunkBucket bucket, long dueTick) {
+        book(bucket, Math.max(dueTick, tick + 1));
+    }
+
+    // The chunk has no animated entities left, or unloaded; it is booked again once some are linked
+    synchronized void stop(ChunkBucket bucket) {
+        bucket.animationQueued = false;
+    }
+
+    synchronized void clear() {
+        phases.forEach((dueTick, chunks) -> {
+            for (ChunkBucket bucket : chunks) {
+                bucket.animationQueued = false;
+            }
+        });
+        for (ChunkBucket bucket : backlog) {
+            bucket.animationQueued = false;
+        }
+        phases.clear();
+        backlog.clear();
+    }
+
+    private void book(ChunkBucket bucket, long dueTick) {
+        phases.computeIfAbsent(dueTick, key -> new ArrayDeque<>()).addLast(bucket);
+    }
+
+    @Override
+    public synchronized void run() {
+        long now = ++tick;
+        ArrayDeque<ChunkBucket> due = phases.remove(now);
+        if (due != null) {
+            backlog.addAll(due);
+        }
+
+        // Late chunks compute their keyframe from the tick they run at, so they catch up in phase
+        int dispatched = 0;
+        while (dispatched < chunksPerTick && !backlog.isEmpty()) {
+            ChunkBucket bucket = backlog.pollFirst();
+            World world = plugin.getServer().getWorld(bucket.worldId);
+            if (world == null) {
+                bucket.animationQueued = false;
+                continue;
+            }
+            plugin.runAtChunk(world, bucket.chunkX(), bucket.chunkZ(), () -> plugin.animateChunk(world, bucket));
+            dispatched++;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.event.ClickEvent;
+import net.kyori.adventure.text.event.HoverEvent;
+import net.kyori.adventure.text.format.NamedTextColor;
+
+// Runs /bd near, clear and recolor over an area by visiting only the chunk buckets it
+// intersects. Chunks are handled on the region owning them under a per-tick time budget,
+// hopping regions like a fill, so large areas spread over several ticks.
+final class AreaTask implements Runnable {
+
+    enum Action { NEAR, CLEAR, RECOLOR }
+
+    // Nearest displays listed by /bd near
+    private static final int LISTED = 10;
+
+    private final BlockDisplayPlugin plugin;
+    private final DisplayIndex index;
+    private final UUID playerId;
+    private final World world;
+    private final Action action;
+    private final int glowColor;
+    private final long budgetNanos;
+
+    private final int minX, minY, minZ, maxX, maxY, maxZ;
+    private final int minChunkX, minChunkZ, maxChunkX, maxChunkZ;
+    // Sphere for radius queries; a negative radius means the box is the whole area
+    private final int centerX, centerY, centerZ;
+    private final long radiusSquared;
+
+    private int chunkX, chunkZ;
+    private int matched;
+    private int changed;
+    // Farthest first, so the head is the one to drop once more than LISTED are kept
+    private final PriorityQueue<Hit> nearest = new PriorityQueue<>(Comparator.comparingLong(Hit::distanceSquared).reversed());
+    private volatile ScheduledTask task;
+    private volatile boolean finished;
+
+    private record Hit(DisplayRecord record, long distanceSquared) {
+    }
+
+    AreaTask(BlockDisplayPlugin plugin, DisplayIndex index, UUID playerId, World world, Action action, int glowColor,
+             int x1, int y1, int z1, int x2, int y2, int z2, int centerX, int centerY, int centerZ, int radius,
+             long budgetMicros) {
+        this.plugin = plugin;
+        this.index = index;
+        this.playerId = playerId;
+        this.world = world;
+        this.action = action;
+        this.glowColor = glowColor;
+        this.budgetNanos = Math.max(1L, budgetMicros) * 1000L;
+
+        this.minX = Math.min(x1, x2);
+        this.minY = Math.min(y1, y2);
+        this.minZ = Math.min(z1, z2);
+        this.maxX = Math.max(x1, x2);
+        this.maxY = Math.max(y1, y2);
+        this.maxZ = Math.max(z1, z2);
+        this.minChunkX = minX >> 4;
+        this.minChunkZ = minZ >> 4;
+        this.maxChunkX = maxX >> 4;
+        this.maxChunkZ = maxZ >> 4;
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.centerZ = centerZ;
+        this.radiusSquared = radius >= 0 ? (long) radius * radius : -1L;
+        this.chunkX = minChunkX;
+        this.chunkZ = minChunkZ;
+    }
+
+    // Cuboid selection
+    static AreaTask box(BlockDisplayPlugin plugin, DisplayIndex index, Player player, Action action, int glowColor,
+                        int x1, int y1, int z1, int x2, int y2, int z2, long budgetMicros) {
+        return new AreaTask(plugin, index, player.getUniqueId(), player.getWorld(), action, glowColor,
+                x1, y1, z1, x2, y2, z2, x1, y1, z1, -1, budgetMicros);
+    }
+
+    // Sphere around the player's block
+    static AreaTask radius(BlockDisplayPlugin plugin, DisplayIndex index, Player player, Action action, int glowColor,
+                           int radius, long budgetMicros) {
+        int x = player.getLocation().getBlockX(), y = player.getLocation().getBlockY(), z = player.getLocation().getBlockZ();
+        return new AreaTask(plugin, index, player.getUniqueId(), player.getWorld(), action, glowColor,
+                x - radius, y - radius, z - radius, x + radius, y + radius, z + radius, x, y, z, radius, budgetMicros);
+    }
+
+    long chunkCount() {
+        return (long) (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1);
+    }
+
+    void start() {
+        // Regions of the area are read ahead while the first chunks are visited
+        int step = 1 << RegionShard.REGION_SHIFT;
+        for (int x = minChunkX; x <= maxChunkX + step - 1; x += step) {
+            for (int z = minChunkZ; z <= maxChunkZ + step - 1; z += step) {
+                plugin.prefetchChunk(world, Math.min(x, maxChunkX), Math.min(z, maxChunkZ));
+            }
+        }
+        schedule();
+    }
+
+    private void schedule() {
+        task = plugin.getServer().getRegionScheduler().runDelayed(plugin, world, chunkX, chunkZ, t -> run(), 1L);
+    }
+
+    void cancel() {
+        finish(Component.text("Cancelled after " + matched + " displays.", NamedTextColor.YELLOW));
+    }
+
+    @Override
+    public void run() {
+        if (finished) {
+            return;
+        }
+        long deadline = System.nanoTime() + budgetNanos;
+        do {
+            // A region still on disk is read off the region thread, the chunk is retried once it's in
+            CompletableFuture<Void> read = plugin.prefetchChunk(world, chunkX, chunkZ);
+            if (!read.isDone()) {
+                read.thenRun(this::schedule);
+                return;
+            }
+            visitChunk(chunkX, chunkZ);
+            if (++chunkZ > maxChunkZ) {
+                chunkZ = minChunkZ;
+                chunkX++;
+            }
+            if (chunkX > maxChunkX) {
+                finishComplete();
+                return;
+            }
+            // The next chunk belongs to another region, continue there next tick
+        } while (plugin.getServer().isOwnedByCurrentRegion(world, chunkX, chunkZ) && System.nanoTime() < deadline);
+
+        if (!finished) {
+            schedule();
+        }
+    }
+
+    private void visitChunk(int cx, int cz) {
+        // The region was read, the chunk's displays go into the index now if nobody needed them yet
+        plugin.ensureChunkLoaded(world, cx, cz);
+        ChunkBucket bucket = index.bucket(world.getUID(), cx, cz);
+        if (bucket == null) {
+            return;
+        }
+
+        List<DisplayRecord> hits = new ArrayList<>();
+        bucket.forEach(record -> {
+            int x = record.x(), y = record.y(), z = record.z();
+            if (x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ) {
+                return;
+            }
+            long dx = x - centerX, dy = y - centerY, dz = z - centerZ;
+            long distanceSquared = dx * dx + dy * dy + dz * dz;
+            if (radiusSquared >= 0 && distanceSquared > radiusSquared) {
+                return;
+            }
+            hits.add(record);
+            if (action == Action.NEAR) {
+                nearest.add(new Hit(record, distanceSquared));
+                if (nearest.size() > LISTED) {
+                    nearest.poll();
+                }
+            }
+        });
+        if (hits.isEmpty()) {
+            return;
+        }
+
+        matched += hits.size();
+        switch (action) {
+            case CLEAR -> {
+                plugin.removeDisplays(world, hits);
+                changed += hits.size();
+            }
+            case RECOLOR -> changed += plugin.recolorDisplays(world, hits, glowColor);
+            default -> {
+            }
+        }
+    }
+
+    private void finishComplete() {
+        Component summary = switch (action) {
+            case NEAR -> Component.text(matched + " displays found.", NamedTextColor.GREEN);
+            case CLEAR -> Component.text("Cleared " + changed + " displays.", NamedTextColor.GREEN);
+            case RECOLOR -> Component.text("Recolored " + changed + " of " + matched + " displays to "
+                    + DisplayColors.format(glowColor) + ".", NamedTextColor.GREEN);
+        };
+        finish(summary);
+    }
+
+    // Called from the task's own region or from a cancel on another thread
+    private synchronized void finish(Component message) {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        ScheduledTask pending = task;
+        if (pending != null) {
+            pending.cancel();
+        }
+        plugin.areaTaskFinished(playerId, this);
+        Player player = plugin.getServer().getPlayer(playerId);
+        if (player == null) {
+            return;
+        }
+        player.sendMessage(message);
+
+        if (action == Action.NEAR && !nearest.isEmpty()) {
+            List<Hit> listed = new ArrayList<>(nearest);
+            listed.sort(Comparator.comparingLong(Hit::distanceSquared));
+            for (Hit hit : listed) {
+                DisplayRecord record = hit.record();
+                String position = record.x() + " " + record.y() + " " + record.z();
+                player.sendMessage(Component.text(String.format(" %s  %s %s, %.1f blocks", position,
+                                DisplayColors.format(record.glowColor), record.template.name, Math.sqrt(hit.distanceSquared())),
+                                NamedTextColor.GRAY)
+                        .clickEvent(ClickEvent.runCommand("/bd tp " + world.getName() + " " + position))
+                        .hoverEvent(HoverEvent.showText(Component.text("Click to teleport", NamedTextColor.AQUA))));
+            }
+        }
+    }
+}
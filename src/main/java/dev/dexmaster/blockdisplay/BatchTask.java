@@ -0,0 +1,150 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+
+// Applies a service call chunk by chunk on the region owning each chunk, as many chunks per
+// tick as the budget allows, hopping regions like a fill. Chunks are ordered by region so a
+// batch visits every region once.
+final class BatchTask<T> implements Runnable {
+
+    record ChunkWork<T>(World world, int chunkX, int chunkZ, List<T> items) {
+    }
+
+    interface Step<T> {
+        // Returns how many displays the chunk's work changed
+        int apply(ChunkWork<T> chunk);
+    }
+
+    private final BlockDisplayPlugin plugin;
+    private final List<ChunkWork<T>> chunks;
+    private final Step<T> step;
+    private final long budgetNanos;
+    private final CompletableFuture<Integer> future = new CompletableFuture<>();
+
+    private int position;
+    private int total;
+    private volatile ScheduledTask task;
+
+    BatchTask(BlockDisplayPlugin plugin, List<ChunkWork<T>> chunks, Step<T> step, long budgetMicros) {
+        this.plugin = plugin;
+        this.chunks = chunks;
+        this.step = step;
+        this.budgetNanos = Math.max(1L, budgetMicros) * 1000L;
+    }
+
+    // Groups blocks by world and chunk
+    static List<ChunkWork<Block>> byChunk(Collection<Block> blocks) {
+        Map<UUID, LongKeyMap<ChunkWork<Block>>> worlds = new HashMap<>();
+        List<ChunkWork<Block>> chunks = new ArrayList<>();
+        for (Block block : blocks) {
+            World world = block.getWorld();
+            int chunkX = block.getX() >> 4, chunkZ = block.getZ() >> 4;
+            LongKeyMap<ChunkWork<Block>> byKey = worlds.computeIfAbsent(world.getUID(), id -> new LongKeyMap<>());
+            long chunkKey = BlockKey.chunkKey(chunkX, chunkZ);
+            ChunkWork<Block> chunk = byKey.get(chunkKey);
+            if (chunk == null) {
+                chunk = new ChunkWork<>(world, chunkX, chunkZ, new ArrayList<>());
+                byKey.put(chunkKey, chunk);
+                chunks.add(chunk);
+            }
+            chunk.items().add(block);
+        }
+        sortByRegion(chunks);
+        return chunks;
+    }
+
+    // Every chunk column overlapping the block range, without items
+    static List<ChunkWork<Void>> covering(World world, int minX, int minZ, int maxX, int maxZ) {
+        List<ChunkWork<Void>> chunks = new ArrayList<>();
+        for (int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+            for (int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+                chunks.add(new ChunkWork<>(world, chunkX, chunkZ, List.of()));
+            }
+        }
+        sortByRegion(chunks);
+        return chunks;
+    }
+
+    private static <T> void sortByRegion(List<ChunkWork<T>> chunks) {
+        chunks.sort(Comparator.<ChunkWork<T>, UUID>comparing(chunk -> chunk.world().getUID())
+                .thenComparingInt(chunk -> chunk.chunkX() >> RegionShard.REGION_SHIFT)
+                .thenComparingInt(chunk -> chunk.chunkZ() >> RegionShard.REGION_SHIFT));
+    }
+
+    CompletableFuture<Integer> future() {
+        return future;
+    }
+
+    void start() {
+        if (chunks.isEmpty()) {
+            future.complete(0);
+            return;
+        }
+        // Regions the batch visits are read ahead while it works through the first ones
+        for (ChunkWork<T> chunk : chunks) {
+            plugin.prefetchChunk(chunk.world(), chunk.chunkX(), chunk.chunkZ());
+        }
+        schedule();
+    }
+
+    private void schedule() {
+        ChunkWork<T> next = chunks.get(position);
+        task = plugin.getServer().getRegionScheduler().runDelayed(plugin, next.world(), next.chunkX(), next.chunkZ(), t -> run(), 1L);
+    }
+
+    // Fails the future; called when the plugin disables with the batch unfinished
+    void cancel() {
+        ScheduledTask pending = task;
+        if (pending != null) {
+            pending.cancel();
+        }
+        future.completeExceptionally(new CancellationException("BlockDisplay is disabling"));
+    }
+
+    @Override
+    public void run() {
+        if (future.isDone()) {
+            return;
+        }
+        long deadline = System.nanoTime() + budgetNanos;
+        try {
+            while (true) {
+                ChunkWork<T> chunk = chunks.get(position);
+                // A region still on disk is read off the region thread, the chunk is retried once it's in
+                CompletableFuture<Void> read = plugin.prefetchChunk(chunk.world(), chunk.chunkX(), chunk.chunkZ());
+                if (!read.isDone()) {
+                    read.thenRun(this::schedule);
+                    return;
+                }
+                total += step.apply(chunk);
+                if (++position >= chunks.size()) {
+                    future.complete(total);
+                    return;
+                }
+                // The next chunk belongs to another region, continue there next tick
+                ChunkWork<T> next = chunks.get(position);
+                if (System.nanoTime() >= deadline
+                        || !plugin.getServer().isOwnedByCurrentRegion(next.world(), next.chunkX(), next.chunkZ())) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            return;
+        }
+        schedule();
+    }
+}
@@ -1,46 +1,78 @@
 package dev.dexmaster.blockdisplay;
 
-import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.lang.reflect.Type;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
 
+import org.bukkit.Chunk;
 import org.bukkit.Color;
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.World;
 import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.BlockState;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.BlockDisplay;
 import org.bukkit.entity.Display;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockBurnEvent;
 import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockFadeEvent;
+import org.bukkit.event.block.BlockFormEvent;
+import org.bukkit.event.block.BlockFromToEvent;
+import org.bukkit.event.block.BlockPhysicsEvent;
 import org.bukkit.event.block.BlockPistonExtendEvent;
 import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.block.BlockSpreadEvent;
+import org.bukkit.event.block.LeavesDecayEvent;
+import org.bukkit.event.block.TNTPrimeEvent;
 import org.bukkit.event.entity.EntityChangeBlockEvent;
 import org.bukkit.event.entity.EntityExplodeEvent;
-import org.bukkit.event.server.PluginDisableEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.EntitiesLoadEvent;
+import org.bukkit.event.world.EntitiesUnloadEvent;
+import org.bukkit.event.world.StructureGrowEvent;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.scheduler.BukkitTask;
 import org.bukkit.scoreboard.Scoreboard;
 import org.bukkit.scoreboard.Team;
+import org.bukkit.util.Transformation;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
 
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
@@ -48,19 +80,66 @@ import net.kyori.adventure.text.format.NamedTextColor;
 public class BlockDisplayPlugin extends JavaPlugin implements Listener, CommandExecutor {
     
     private static BlockDisplayPlugin instance;
-    // Changed from WeakHashMap<Location, UUID> to Map<UUID, BlockLocation> for stronger tracking
-    private final Map<UUID, BlockLocation> trackedDisplays = new HashMap<>();
-    private String defaultColor;
-    private double offsetX, offsetY, offsetZ;
-    private BukkitTask failsafeTask;
+    private static final boolean FOLIA = isFolia();
+    // Support block rejections, shared so bulk checks don't allocate
+    private static final Component BLOCKED_MATERIAL = Component.text("Cannot place on that block.", NamedTextColor.RED);
+    private static final Component NON_FULL_BLOCK = Component.text("§cYou can't place a BlockDisplay on non-full blocks.", NamedTextColor.RED);
+    private static final Component CANT_HOST = Component.text("That block can't host a display.", NamedTextColor.RED);
+    // Ticks a piston takes to move its blocks
+    private static final int PISTON_MOVE_TICKS = 2;
+    // All known displays keyed by support block; entities exist only for loaded chunks
+    private final DisplayIndex displayIndex = new DisplayIndex();
+    private final RegionLoader regionLoader = new RegionLoader(this, displayIndex);
+    // Counters and timings for /bd stats and the Prometheus export
+    private final PluginMetrics metrics = new PluginMetrics();
+    private final MetricsExporter metricsExporter = new MetricsExporter(this, metrics, displayIndex);
+    private final FailsafeSweeper failsafeSweeper = new FailsafeSweeper(this, displayIndex, metrics);
+    private final DisplayVisibility visibility = new DisplayVisibility(this);
+    private final DisplayLod lod = new DisplayLod(this, displayIndex, metrics);
+    private final AnimationEngine animationEngine = new AnimationEngine(this);
+    private ScheduledTask animationTask;
+    private volatile int defaultColor;
+    // Compiled display looks by lower case name; records share these instances
+    private volatile Map<String, DisplayTemplate> templates = Map.of();
+    private volatile DisplayTemplate defaultTemplate;
+    private volatile double offsetX, offsetY, offsetZ;
+    private ScheduledTask failsafeTask;
+    private int failsafeIntervalTicks;
+    private final RemeshQueue remeshQueue = new RemeshQueue(this);
+    private ScheduledTask remeshTask;
+    private volatile boolean mergeEnabled;
+    private final Map<UUID, BulkFillTask> activeFills = new ConcurrentHashMap<>();
+    private volatile long fillMaxVolume;
+    private volatile long fillBudgetMicros;
+    private volatile int fillMaxSpawnsPerTick;
+    private volatile int fillProgressIntervalTicks;
+    private final Map<UUID, AreaTask> activeAreaTasks = new ConcurrentHashMap<>();
+    private volatile int areaMaxChunks;
+    private volatile long areaBudgetMicros;
+    // Service API batches still being applied
+    private final Set<BatchTask<?>> activeBatches = new CopyOnWriteArraySet<>();
+    private volatile long apiBudgetMicros;
     private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
-    private Team glowTeam;
+    private DisplayJournal journal;
+    private DisplayQuotas quotas;
+    // Entity tags: min corner block key, cuboid size, glow color, template and audience of the displays an entity renders
+    private NamespacedKey supportTag;
+    private NamespacedKey sizeTag;
+    private NamespacedKey colorTag;
+    private NamespacedKey templateTag;
+    private NamespacedKey audienceTag;
     
     @Override
     public void onEnable() {
         instance = this;
+        supportTag = new NamespacedKey(this, "support");
+        sizeTag = new NamespacedKey(this, "size");
+        colorTag = new NamespacedKey(this, "color");
+        templateTag = new NamespacedKey(this, "template");
+        audienceTag = new NamespacedKey(this, "audience");
         
         saveDefaultConfig();
+        quotas = new DisplayQuotas();
         
         // Load configuration
         loadConfiguration();
@@ -70,13 +149,27 @@ public class BlockDisplayPlugin extends JavaPlugin implements Listener, CommandE
         
         // Register command and tab completer
         getCommand("bd").setExecutor(this);
-        getCommand("bd").setTabCompleter(new BlockDisplayTabCompleter());
+        getCommand("bd").setTabCompleter(new BlockDisplayTabCompleter(this));
+        
+        // Expose the batch API to other plugins
+        getServer().getServicesManager().register(BlockDisplayService.class,
+                new DisplayService(this, displayIndex), this, ServicePriority.Normal);
         
-        // Load displays from JSON file
+        // Load displays from the snapshot and journal
+        journal = new DisplayJournal(getLogger(), gson, metrics, getDataFolder(),
+                getConfig().getInt("persistence.compact-after-entries", 10000));
         loadDisplaysFromFile();
         
-        // Start failsafe cleanup task (every 2 seconds)
+        // Players already online after a reload never fire a join
+        for (Player player : getServer().getOnlinePlayers()) {
+            player.getScheduler().run(this, task -> visibility.join(player), null);
+        }
+        
+        // Start incremental failsafe cleanup task
         startFailsafeTask();
+        startRemeshTask();
+        startAnimationTask();
+        metricsExporter.start();
         
         getLogger().info("BlockDisplay plugin enabled!");
     }
@@ -86,9 +179,32 @@ public class BlockDisplayPlugin extends JavaPlugin implements Listener, CommandE
         if (failsafeTask != null) {
             failsafeTask.cancel();
         }
-        // Save displays to JSON file
-        saveDisplaysToFile();
-        cleanupAllDisplays();
+        if (remeshTask != null) {
+            remeshTask.cancel();
+        }
+        if (animationTask != null) {
+            animationTask.cancel();
+        }
+        for (BulkFillTask task : new ArrayList<>(activeFills.values())) {
+            task.cancel();
+        }
+        for (AreaTask task : new ArrayList<>(activeAreaTasks.values())) {
+            task.cancel();
+        }
+        for (BatchTask<?> task : activeBatches) {
+            task.cancel();
+        }
+        getServer().getServicesManager().unregisterAll(this);
+        metricsExporter.stop();
+        // Every change is already journaled, only the unflushed tail is left to write
+        journal.close();
+        // Entities are persistent and stay in the world, they are adopted again on the next enable
+        regionLoader.clear();
+        displayIndex.clear();
+        visibility.clear();
+        failsafeSweeper.clear();
+        remeshQueue.clear();
+        animationEngine.clear();
         getLogger().info("BlockDisplay plugin disabled!");
     }
     
@@ -98,171 +214,230 @@ public class BlockDisplayPlugin extends JavaPlugin implements Listener, CommandE
         offsetY = getConfig().getDouble("offset.y", -1.0);
         offsetZ = getConfig().getDouble("offset.z", 0.99999);
         
+        // Load failsafe sweep settings
+        failsafeIntervalTicks = Math.max(1, getConfig().getInt("failsafe.interval-ticks", 1));
+        failsafeSweeper.configure(
+                getConfig().getLong("failsafe.budget-micros", 500L),
+                failsafeIntervalTicks,
+                getConfig().getInt("failsafe.period-ticks", 1200));
+        
+        // Load display merging settings
+        mergeEnabled = getConfig().getBoolean("merge.enabled", true);
+        remeshQueue.configure(
+                getConfig().getInt("merge.chunks-per-tick", 16),
+                getConfig().getInt("merge.delay-ticks", 40));
+        
+        // Load bulk fill limits
+        fillMaxVolume = getConfig().getLong("fill.max-volume", 1000000L);
+        fillBudgetMicros = getConfig().getLong("fill.budget-micros", 2000L);
+        fillMaxSpawnsPerTick = Math.max(1, getConfig().getInt("fill.max-spawns-per-tick", 250));
+        fillProgressIntervalTicks = Math.max(1, getConfig().getInt("fill.progress-interval-ticks", 40));
+        
+        // Load area command limits
+        areaMaxChunks = Math.max(1, getConfig().getInt("area.max-chunks", 4096));
+        areaBudgetMicros = getConfig().getLong("area.budget-micros", 2000L);
+        apiBudgetMicros = getConfig().getLong("api.budget-micros", 2000L);
+        
+        // Load visibility groups
+        visibility.configure(getConfig().getStringList("visibility.groups"),
+                getConfig().getLong("visibility.refresh-ticks", 100L));
+        
+        // Load display quotas
+        Map<String, Integer> worldLimits = new HashMap<>();
+        ConfigurationSection quotaWorlds = getConfig().getConfigurationSection("quotas.worlds");
+        if (quotaWorlds != null) {
+            for (String world : quotaWorlds.getKeys(false)) {
+                worldLimits.put(world, quotaWorlds.getInt(world));
+            }
+        }
+        quotas.configure(
+                getConfig().getInt("quotas.per-chunk", 0),
+                getConfig().getInt("quotas.per-player", 0),
+                getConfig().getInt("quotas.per-world", 0),
+                worldLimits);
+        
+        // Load animation limits
+        animationEngine.configure(
+                getConfig().getInt("animation.chunks-per-tick", 64),
+                getConfig().getInt("animation.idle-check-ticks", 20));
+        
+        // Load level of detail tiers
+        try {
+            lod.configure(getConfig().getConfigurationSection("lod"));
+        } catch (IllegalArgumentException e) {
+            getLogger().warning("Invalid lod settings: " + e.getMessage() + ", keeping the previous ones");
+        }
+        
         // Load default color
-        defaultColor = getConfig().getString("default-color", "GREEN");
+        String colorName = getConfig().getString("default-color", "GREEN");
         try {
-            // Validate color by trying to parse it
-            parseColor(defaultColor);
+            defaultColor = DisplayColors.parse(colorName);
         } catch (IllegalArgumentException e) {
-            defaultColor = "GREEN";
-            getLogger().warning("Invalid color in config: " + defaultColor + ", using GREEN");
+            defaultColor = NamedTextColor.GREEN.value();
+            getLogger().warning("Invalid color in config: " + colorName + ", using GREEN");
         }
+        
+        loadTemplates();
     }
     
-    private void loadDisplaysFromFile() {
-        try {
-            File displaysFile = new File(getDataFolder(), "displays.json");
-            if (!displaysFile.exists()) {
-                return;
-            }
-            
-            String json = new String(Files.readAllBytes(displaysFile.toPath()));
-            Type listType = new TypeToken<List<DisplayData>>(){}.getType();
-            List<DisplayData> displayList = gson.fromJson(json, listType);
-            
-            if (displayList == null) {
-                return;
-            }
-            
-            // Initialize glow team
-            this.glowTeam = setupGlowTeam();
-            
-            int loaded = 0;
-            for (DisplayData data : displayList) {
-                World world = getServer().getWorld(data.world);
-                if (world != null) {
-                    Location blockLoc = new Location(world, data.x, data.y, data.z);
-                    Location spawnLoc = blockLoc.clone().add(data.offsetX, data.offsetY, data.offsetZ);
-                    
-                    NamedTextColor glowColor = parseColor(data.glowColor);
-                    
-                    BlockDisplay display = (BlockDisplay) world.spawn(spawnLoc, BlockDisplay.class, entity -> {
-                        entity.setBlock(Material.SHULKER_BOX.createBlockData());
-                        entity.setGlowing(true);
-                        entity.setGlowColorOverride(Color.fromRGB(glowColor.value()));
-                        entity.setInterpolationDuration(0);
-                        entity.setBrightness(new Display.Brightness(15, 15));
-                    });
-                    
-                    // Add to glow team
-                    glowTeam.addEntry(display.getUniqueId().toString());
-                    
-                    // Track the display
-                    trackedDisplays.put(display.getUniqueId(), new BlockLocation(blockLoc, blockLoc.getBlock().getType()));
-                    loaded++;
+    // Compiles the templates once; an unchanged template keeps its instance across reloads,
+    // so displays spawned before and after still merge
+    private void loadTemplates() {
+        Map<String, DisplayTemplate> previous = templates;
+        Map<String, DisplayTemplate> loaded = new HashMap<>();
+        ConfigurationSection section = getConfig().getConfigurationSection("templates");
+        if (section != null) {
+            for (String key : section.getKeys(false)) {
+                ConfigurationSection templateSection = section.getConfigurationSection(key);
+                if (templateSection == null) {
+                    continue;
+                }
+                String name = key.toLowerCase(Locale.ROOT);
+                try {
+                    DisplayTemplate template = DisplayTemplate.load(name, templateSection, defaultColor);
+                    loaded.put(name, template.equals(previous.get(name)) ? previous.get(name) : template);
+                } catch (IllegalArgumentException e) {
+                    getLogger().warning("Invalid template " + key + ": " + e.getMessage() + ", skipping it");
                 }
             }
-            
-            getLogger().info("Loaded " + loaded + " displays from file");
-        } catch (Exception e) {
-            getLogger().severe("Failed to load displays: " + e.getMessage());
         }
+        
+        String defaultName = getConfig().getString("default-template", "default").toLowerCase(Locale.ROOT);
+        DisplayTemplate fallback = loaded.get(defaultName);
+        if (fallback == null) {
+            // Built-in look: a glowing shulker box at full brightness
+            fallback = new DisplayTemplate(defaultName, Material.SHULKER_BOX.createBlockData(), defaultColor,
+                    new Display.Brightness(15, 15), 1f, 1f, null);
+            if (fallback.equals(previous.get(defaultName))) {
+                fallback = previous.get(defaultName);
+            }
+            loaded.put(defaultName, fallback);
+        }
+        templates = Map.copyOf(loaded);
+        defaultTemplate = fallback;
+    }
+    
+    // Stored displays name their template; unknown or missing names get the default one
+    private DisplayTemplate templateNamed(String name) {
+        DisplayTemplate template = name != null ? templates.get(name) : null;
+        return template != null ? template : defaultTemplate;
+    }
+    
+    Collection<String> templateNames() {
+        return templates.keySet();
+    }
+    
+    List<String> visibilityGroups() {
+        return visibility.groups();
+    }
+    
+    // Template by name for the service API: a null name picks the default, unknown names give null
+    DisplayTemplate template(String name) {
+        return name != null ? templates.get(name.toLowerCase(Locale.ROOT)) : defaultTemplate;
     }
     
-    private void saveDisplaysToFile() {
+    long apiBudgetMicros() {
+        return apiBudgetMicros;
+    }
+    
+    void startBatch(BatchTask<?> task) {
+        activeBatches.add(task);
+        task.future().whenComplete((count, error) -> activeBatches.remove(task));
+        task.start();
+    }
+    
+    private void loadDisplaysFromFile() {
         try {
-            File dataFolder = getDataFolder();
-            if (!dataFolder.exists()) {
-                dataFolder.mkdirs();
-            }
-            
-            File displaysFile = new File(dataFolder, "displays.json");
-            List<DisplayData> displayList = new ArrayList<>();
-            
-            for (Map.Entry<UUID, BlockLocation> entry : trackedDisplays.entrySet()) {
-                UUID displayId = entry.getKey();
-                BlockLocation blockLoc = entry.getValue();
-                Entity entity = getServer().getEntity(displayId);
-                
-                if (entity instanceof BlockDisplay) {
-                    BlockDisplay display = (BlockDisplay) entity;
-                    Color glowColor = display.getGlowColorOverride();
-                    String colorName = glowColor != null ? colorFromRGB(glowColor.asRGB()) : defaultColor;
-                    
-                    DisplayData data = new DisplayData();
-                    data.world = blockLoc.location.getWorld().getName();
-                    data.x = blockLoc.location.getBlockX();
-                    data.y = blockLoc.location.getBlockY();
-                    data.z = blockLoc.location.getBlockZ();
-                    data.glowColor = colorName;
-                    data.offsetX = offsetX;
-                    data.offsetY = offsetY;
-                    data.offsetZ = offsetZ;
-                    
-                    displayList.add(data);
-                }
-            }
+            // Glow color comes from the entity itself, drop the team older versions filled
+            removeLegacyGlowTeam();
             
-            try (FileWriter writer = new FileWriter(displaysFile)) {
-                gson.toJson(displayList, writer);
+            // Migrates legacy JSON and folds any journal left by a crash into the region shards;
+            // the shards themselves are only read once a chunk in their region loads
+            journal.open();
+            quotas.load(journal.quotaTotals());
+            if (!journal.quotaTotalsKnown()) {
+                // No saved totals yet: counted by the journal's writer, the server doesn't wait for it
+                journal.recount(quotas::adjust);
             }
             
-            getLogger().info("Saved " + displayList.size() + " displays to file");
-        } catch (IOException e) {
-            getLogger().severe("Failed to save displays: " + e.getMessage());
+            // Chunks that were loaded before the plugin enabled never fire a load event
+            materializeLoadedChunks();
+        } catch (Exception e) {
+            getLogger().severe("Failed to load displays: " + e.getMessage());
         }
     }
     
-    private Team setupGlowTeam() {
-        Scoreboard sb = getServer().getScoreboardManager().getMainScoreboard();
-        Team team = sb.getTeam("blockdisplay_glow");
-        
-        if (team == null) {
-            team = sb.registerNewTeam("blockdisplay_glow");
+    // Puts the stored displays of a chunk into the index the first time it is needed, on the
+    // thread owning the chunk. Only for loaded chunks, whose region was prefetched when they loaded;
+    // it waits for the read otherwise, so tasks walking unloaded areas wait on prefetchChunk first.
+    void ensureChunkLoaded(World world, int chunkX, int chunkZ) {
+        ChunkBucket bucket = regionLoader.load(world, chunkX, chunkZ);
+        if (bucket != null) {
+            failsafeSweeper.enqueue(bucket);
         }
-        
-        team.setOption(Team.Option.NAME_TAG_VISIBILITY, Team.OptionStatus.NEVER);
-        team.setOption(Team.Option.COLLISION_RULE, Team.OptionStatus.NEVER);
-        team.setAllowFriendlyFire(true);
-        
-        return team;
     }
     
-    private String colorFromRGB(int rgb) {
-        // Simple mapping from RGB back to named colors
-        for (NamedTextColor color : getValidColors()) {
-            if (color.value() == rgb) {
-                return color.toString().toLowerCase();
-            }
+    // Starts reading the chunk's region in the background unless it was read already;
+    // completes once the index has it
+    CompletableFuture<Void> prefetchChunk(World world, int chunkX, int chunkZ) {
+        return regionLoader.prefetch(world, chunkX, chunkZ);
+    }
+    
+    // Reads a region's stored displays; called on the async scheduler
+    List<DisplayRecord> readRegion(World world, long regionKey) throws IOException {
+        List<DisplayRecord> records = new ArrayList<>();
+        for (DisplayData data : journal.readRegion(world.getName(), regionKey)) {
+            Material material = data.material != null ? Material.matchMaterial(data.material) : null;
+            records.add(new DisplayRecord(world.getUID(), BlockKey.pack(data.x, data.y, data.z), material,
+                    templateNamed(data.template), DisplayColors.parse(data.glowColor), data.audience,
+                    DisplayQuotas.parseOwner(data.owner), data.offsetX, data.offsetY, data.offsetZ));
         }
-        return defaultColor.toLowerCase();
+        return records;
     }
     
-    private NamedTextColor[] getValidColors() {
-        return new NamedTextColor[] {
-            NamedTextColor.BLACK, NamedTextColor.DARK_BLUE, NamedTextColor.DARK_GREEN, 
-            NamedTextColor.DARK_AQUA, NamedTextColor.DARK_RED, NamedTextColor.DARK_PURPLE,
-            NamedTextColor.GOLD, NamedTextColor.GRAY, NamedTextColor.DARK_GRAY,
-            NamedTextColor.BLUE, NamedTextColor.GREEN, NamedTextColor.AQUA,
-            NamedTextColor.RED, NamedTextColor.LIGHT_PURPLE, NamedTextColor.YELLOW, NamedTextColor.WHITE
-        };
+    private DisplayData toDisplayData(String worldName, DisplayRecord record) {
+        DisplayData data = new DisplayData();
+        data.world = worldName;
+        data.x = record.x();
+        data.y = record.y();
+        data.z = record.z();
+        data.glowColor = DisplayColors.format(record.glowColor);
+        data.material = record.material != null ? record.material.name() : null;
+        data.template = record.template.name;
+        data.audience = record.audience;
+        data.owner = record.owner != null ? record.owner.toString() : null;
+        data.offsetX = record.offsetX;
+        data.offsetY = record.offsetY;
+        data.offsetZ = record.offsetZ;
+        return data;
     }
     
-    public static NamedTextColor parseColor(String input) throws IllegalArgumentException {
-        // List of valid NamedTextColor values
-        NamedTextColor[] validColors = new NamedTextColor[] {
-            NamedTextColor.BLACK, NamedTextColor.DARK_BLUE, NamedTextColor.DARK_GREEN, 
-            NamedTextColor.DARK_AQUA, NamedTextColor.DARK_RED, NamedTextColor.DARK_PURPLE,
-            NamedTextColor.GOLD, NamedTextColor.GRAY, NamedTextColor.DARK_GRAY,
-            NamedTextColor.BLUE, NamedTextColor.GREEN, NamedTextColor.AQUA,
-            NamedTextColor.RED, NamedTextColor.LIGHT_PURPLE, NamedTextColor.YELLOW, NamedTextColor.WHITE
-        };
-        
-        return Arrays.stream(validColors)
-                .filter(c -> c.toString().equalsIgnoreCase(input))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Invalid color: " + input));
+    private void removeLegacyGlowTeam() {
+        Scoreboard sb = getServer().getScoreboardManager().getMainScoreboard();
+        Team team = sb.getTeam("blockdisplay_glow");
+        if (team != null) {
+            getLogger().info("Removing legacy scoreboard team blockdisplay_glow with " + team.getSize() + " entries");
+            team.unregister();
+        }
     }
     
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
         if (args.length < 1) {
-            sender.sendMessage(Component.text("Usage: /bd <spawn|reload>", NamedTextColor.RED));
+            sender.sendMessage(Component.text("Usage: /bd <spawn|fill|near|clear|recolor|visibility|stats|reload>", NamedTextColor.RED));
             return true;
         }
         
         switch (args[0].toLowerCase()) {
             case "spawn" -> handleSpawnCommand(sender, args);
+            case "fill" -> handleFillCommand(sender, args);
+            case "near" -> handleAreaCommand(sender, args, AreaTask.Action.NEAR);
+            case "clear" -> handleAreaCommand(sender, args, AreaTask.Action.CLEAR);
+            case "recolor" -> handleAreaCommand(sender, args, AreaTask.Action.RECOLOR);
+            case "tp" -> handleTeleportCommand(sender, args);
+            case "visibility" -> handleVisibilityCommand(sender, args);
+            case "quota" -> handleQuotaCommand(sender, args);
+            case "stats" -> handleStatsCommand(sender);
             case "reload" -> handleReloadCommand(sender);
             default -> sender.sendMessage(Component.text("Unknown subcommand: " + args[0], NamedTextColor.RED));
         }
@@ -288,77 +463,494 @@ public class BlockDisplayPlugin extends JavaPlugin implements Listener, CommandE
         }
         
         // Spawn guard - check for disallowed materials
-        Material blockType = targetBlock.getType();
+        Component rejection = checkSupportBlock(targetBlock);
+        if (rejection != null) {
+            sender.sendMessage(rejection);
+            return;
+        }
+        
+        // Check if there's already a display at this location
+        if (hasDisplayAt(targetBlock)) {
+            player.sendMessage(Component.text("A block display already exists at this location!", NamedTextColor.YELLOW));
+            return;
+        }
+        
+        // Determine template and color (from args or defaults)
+        Look look = parseLook(player, args, 1);
+        if (look == null) {
+            return;
+        }
+        
+        DisplayQuotas.Full full = admitDisplay(targetBlock, player.getUniqueId(), player.hasPermission("bd.quota.bypass"));
+        if (full != null) {
+            player.sendMessage(quotas.message(full, targetBlock.getWorld().getName()));
+            return;
+        }
+        
+        String audience = visibility.spawnAudience(player.getUniqueId());
+        spawnAt(targetBlock, look.template(), look.glowColor(), audience, player.getUniqueId());
+        
+        player.sendMessage(Component.text("Spawned " + look.template().name + " display with " + DisplayColors.format(look.glowColor()) + " glow at offset (" + 
+                offsetX + ", " + offsetY + ", " + offsetZ + "), visible to " + DisplayVisibility.describe(audience) + "!", NamedTextColor.GREEN));
+    }
+    
+    // Template and glow color picked by a command
+    private record Look(DisplayTemplate template, int glowColor) {
+    }
+    
+    // Reads the optional "[template|color] [color]" arguments starting at args[from];
+    // returns null after telling the sender what was wrong
+    private Look parseLook(CommandSender sender, String[] args, int from) {
+        DisplayTemplate template = defaultTemplate;
+        String colorName = null;
+        if (args.length > from) {
+            DisplayTemplate named = templates.get(args[from].toLowerCase(Locale.ROOT));
+            if (named != null) {
+                template = named;
+                colorName = args.length > from + 1 ? args[from + 1] : null;
+            } else {
+                colorName = args[from];
+            }
+        }
+        if (colorName == null) {
+            return new Look(template, template.glowColor);
+        }
+        
+        try {
+            return new Look(template, DisplayColors.parse(colorName));
+        } catch (IllegalArgumentException e) {
+            sender.sendMessage(Component.text("Invalid color or template: " + colorName, NamedTextColor.RED));
+            sender.sendMessage(Component.text("Available colors: " + String.join(", ", DisplayColors.NAMES) + " or #rrggbb", NamedTextColor.GRAY));
+            sender.sendMessage(Component.text("Templates: " + String.join(", ", templates.keySet()), NamedTextColor.GRAY));
+            return null;
+        }
+    }
+    
+    // Returns the message explaining why a block can't host a display, or null if it can
+    Component checkSupportBlock(Block block) {
+        Material blockType = block.getType();
         
         // Check for leaves, chests, and trapped chests (original restrictions)
         if (blockType.name().contains("LEAVES") || blockType == Material.CHEST || blockType == Material.TRAPPED_CHEST) {
-            sender.sendMessage(Component.text("Cannot place on that block.", NamedTextColor.RED));
-            return;
+            return BLOCKED_MATERIAL;
         }
         
         // Check for non-full blocks (stairs, fences, slabs)
         if (blockType.name().contains("STAIRS") || blockType.name().contains("FENCE") || 
             blockType.name().contains("SLAB")) {
-            sender.sendMessage(Component.text("§cYou can't place a BlockDisplay on non-full blocks.", NamedTextColor.RED));
-            return;
+            return NON_FULL_BLOCK;
         }
         
         // Full-block only restrictions
         boolean isGlass = blockType.name().endsWith("GLASS") || blockType.name().endsWith("GLASS_PANE");
-        boolean isNonFull = !targetBlock.getBlockData().isOccluding();   // Paper API 1.19+
+        boolean isNonFull = !block.getBlockData().isOccluding();   // Paper API 1.19+
         boolean disallowed = (isNonFull || isGlass) && blockType != Material.SOUL_SAND;
         
         if (disallowed) {
-            sender.sendMessage(Component.text("That block can't host a display.", NamedTextColor.RED));
+            return CANT_HOST;
+        }
+        return null;
+    }
+    
+    boolean hasDisplayAt(Block block) {
+        ensureChunkLoaded(block.getWorld(), block.getX() >> 4, block.getZ() >> 4);
+        return displayIndex.contains(block.getWorld().getUID(), block.getX(), block.getY(), block.getZ());
+    }
+    
+    // Reserves quota for a display on the block and returns null, or returns the quota that is full.
+    // Runs on the block's region, where its chunk's display count can't change underneath.
+    DisplayQuotas.Full admitDisplay(Block block, UUID owner, boolean bypass) {
+        World world = block.getWorld();
+        ChunkBucket bucket = displayIndex.bucket(world.getUID(), block.getX() >> 4, block.getZ() >> 4);
+        return quotas.admit(world.getName(), bucket, owner, bypass);
+    }
+    
+    String describeQuota(DisplayQuotas.Full full, World world) {
+        return quotas.describe(full, world.getName());
+    }
+    
+    // Spawns and tracks a display on an already validated support block whose quota was admitted;
+    // a null audience lets everyone see it, a null owner counts only towards the world
+    DisplayRecord spawnAt(Block block, DisplayTemplate template, int glowColor, String audience, UUID owner) {
+        World world = block.getWorld();
+        
+        // Spawn the block display with per-display glow color at the configured offsets
+        DisplayRecord record = new DisplayRecord(world.getUID(), BlockKey.pack(block.getX(), block.getY(), block.getZ()),
+                block.getType(), template, glowColor, audience, owner, offsetX, offsetY, offsetZ);
+        // Track the display with its support block first, its entity is counted towards the chunk's density
+        ChunkBucket bucket = displayIndex.put(record);
+        spawnMesh(world, DisplayMesh.single(record));
+        journal.putCounted(toDisplayData(world.getName(), record));
+        
+        // Verify its chunk soon and merge it once the chunk settles
+        failsafeSweeper.touch(bucket);
+        markForRemesh(bucket);
+        metrics.spawned.increment();
+        return record;
+    }
+    
+    private void handleFillCommand(CommandSender sender, String[] args) {
+        if (!(sender instanceof Player player)) {
+            sender.sendMessage(Component.text("Only players can fill regions with block displays!", NamedTextColor.RED));
             return;
         }
         
-        // Check if there's already a display at this location
-        boolean alreadyExists = trackedDisplays.values().stream()
-                .anyMatch(blockLoc -> blockLoc.location.equals(targetBlock.getLocation()));
+        if (!player.hasPermission("bd.fill")) {
+            sender.sendMessage(Component.text("You don't have permission to use this command!", NamedTextColor.RED));
+            return;
+        }
         
-        if (alreadyExists) {
-            player.sendMessage(Component.text("A block display already exists at this location!", NamedTextColor.YELLOW));
+        if (args.length == 2 && args[1].equalsIgnoreCase("cancel")) {
+            BulkFillTask task = activeFills.get(player.getUniqueId());
+            if (task == null) {
+                player.sendMessage(Component.text("You have no fill running.", NamedTextColor.YELLOW));
+            } else {
+                task.cancel();
+            }
+            return;
+        }
+        
+        if (args.length < 7) {
+            player.sendMessage(Component.text("Usage: /bd fill <x1> <y1> <z1> <x2> <y2> <z2> [template|color] [color] | /bd fill cancel", NamedTextColor.RED));
             return;
         }
         
-        // Determine color (from args or default)
-        String colorName = defaultColor;
-        if (args.length >= 2) {
-            colorName = args[1];
+        if (activeFills.containsKey(player.getUniqueId())) {
+            player.sendMessage(Component.text("A fill is already running, use /bd fill cancel first.", NamedTextColor.YELLOW));
+            return;
         }
         
-        NamedTextColor glowColor;
+        int[] coords = new int[6];
+        Location origin = player.getLocation();
         try {
-            glowColor = parseColor(colorName);
-        } catch (IllegalArgumentException e) {
-            player.sendMessage(Component.text("Invalid color: " + colorName, NamedTextColor.RED));
-            player.sendMessage(Component.text("Available colors: black, dark_blue, dark_green, dark_aqua, dark_red, dark_purple, gold, gray, dark_gray, blue, green, aqua, red, light_purple, yellow, white", NamedTextColor.GRAY));
+            for (int i = 0; i < 6; i++) {
+                int base = switch (i % 3) {
+                    case 0 -> origin.getBlockX();
+                    case 1 -> origin.getBlockY();
+                    default -> origin.getBlockZ();
+                };
+                coords[i] = parseCoordinate(args[i + 1], base);
+            }
+        } catch (NumberFormatException e) {
+            player.sendMessage(Component.text("Invalid coordinate: " + e.getMessage(), NamedTextColor.RED));
             return;
         }
         
-        // Calculate spawn location using configured offsets
-        Location spawnLoc = targetBlock.getLocation().clone().add(offsetX, offsetY, offsetZ);
+        long volume = (long) (Math.abs(coords[3] - coords[0]) + 1)
+                * (Math.abs(coords[4] - coords[1]) + 1)
+                * (Math.abs(coords[5] - coords[2]) + 1);
+        if (volume > fillMaxVolume) {
+            player.sendMessage(Component.text("Selection is " + volume + " blocks, the limit is " + fillMaxVolume + ".", NamedTextColor.RED));
+            return;
+        }
         
-        // Spawn the block display with per-display glow color
-        BlockDisplay display = (BlockDisplay) player.getWorld().spawn(spawnLoc, BlockDisplay.class, entity -> {
-            entity.setBlock(Material.SHULKER_BOX.createBlockData());
-            entity.setGlowing(true);
-            entity.setGlowColorOverride(Color.fromRGB(glowColor.value())); // Convert NamedTextColor to Color
-            entity.setInterpolationDuration(0);
-            entity.setBrightness(new Display.Brightness(15, 15));
-        });
+        Look look = parseLook(player, args, 7);
+        if (look == null) {
+            return;
+        }
+        
+        BulkFillTask task = new BulkFillTask(this, player.getUniqueId(), player.getWorld(),
+                coords[0], coords[1], coords[2], coords[3], coords[4], coords[5], look.template(), look.glowColor(),
+                visibility.spawnAudience(player.getUniqueId()), player.hasPermission("bd.quota.bypass"), fillBudgetMicros, fillMaxSpawnsPerTick, fillProgressIntervalTicks);
+        activeFills.put(player.getUniqueId(), task);
+        task.start();
+        player.sendMessage(Component.text("Filling " + volume + " blocks with " + DisplayColors.format(look.glowColor()) + " "
+                + look.template().name + " displays, use /bd fill cancel to stop.", NamedTextColor.GREEN));
+    }
+    
+    // Accepts absolute coordinates and ~ / ~n relative to the player
+    private static int parseCoordinate(String input, int base) {
+        if (input.startsWith("~")) {
+            return input.length() == 1 ? base : base + Integer.parseInt(input.substring(1));
+        }
+        return Integer.parseInt(input);
+    }
+    
+    void fillFinished(UUID playerId, BulkFillTask task) {
+        activeFills.remove(playerId, task);
+    }
+    
+    // /bd near <radius>, /bd clear <radius|x1 y1 z1 x2 y2 z2>, /bd recolor <color> <radius|x1 y1 z1 x2 y2 z2>
+    private void handleAreaCommand(CommandSender sender, String[] args, AreaTask.Action action) {
+        if (!(sender instanceof Player player)) {
+            sender.sendMessage(Component.text("Only players can run area commands!", NamedTextColor.RED));
+            return;
+        }
+        
+        if (!player.hasPermission("bd.admin")) {
+            sender.sendMessage(Component.text("You don't have permission to use this command!", NamedTextColor.RED));
+            return;
+        }
+        
+        String name = args[0].toLowerCase(Locale.ROOT);
+        if (args.length == 2 && args[1].equalsIgnoreCase("cancel")) {
+            AreaTask task = activeAreaTasks.get(player.getUniqueId());
+            if (task == null) {
+                player.sendMessage(Component.text("You have no area command running.", NamedTextColor.YELLOW));
+            } else {
+                task.cancel();
+            }
+            return;
+        }
+        
+        // Recolor takes the color first, the area follows
+        int from = action == AreaTask.Action.RECOLOR ? 2 : 1;
+        int areaArgs = args.length - from;
+        boolean selection = action != AreaTask.Action.NEAR && areaArgs == 6;
+        if (areaArgs != 1 && !selection) {
+            String area = action == AreaTask.Action.NEAR ? "<radius>" : "<radius|x1 y1 z1 x2 y2 z2>";
+            String color = action == AreaTask.Action.RECOLOR ? "<color> " : "";
+            player.sendMessage(Component.text("Usage: /bd " + name + " " + color + area + " | /bd " + name + " cancel", NamedTextColor.RED));
+            return;
+        }
+        
+        if (activeAreaTasks.containsKey(player.getUniqueId())) {
+            player.sendMessage(Component.text("An area command is already running, use /bd " + name + " cancel first.", NamedTextColor.YELLOW));
+            return;
+        }
+        
+        int glowColor = 0;
+        if (action == AreaTask.Action.RECOLOR) {
+            try {
+                glowColor = DisplayColors.parse(args[1]);
+            } catch (IllegalArgumentException e) {
+                player.sendMessage(Component.text("Invalid color: " + args[1], NamedTextColor.RED));
+                return;
+            }
+        }
+        
+        AreaTask task;
+        String description;
+        if (selection) {
+            int[] coords = new int[6];
+            Location origin = player.getLocation();
+            try {
+                for (int i = 0; i < 6; i++) {
+                    int base = switch (i % 3) {
+                        case 0 -> origin.getBlockX();
+                        case 1 -> origin.getBlockY();
+                        default -> origin.getBlockZ();
+                    };
+                    coords[i] = parseCoordinate(args[from + i], base);
+                }
+            } catch (NumberFormatException e) {
+                player.sendMessage(Component.text("Invalid coordinate: " + e.getMessage(), NamedTextColor.RED));
+                return;
+            }
+            task = AreaTask.box(this, displayIndex, player, action, glowColor,
+                    coords[0], coords[1], coords[2], coords[3], coords[4], coords[5], areaBudgetMicros);
+            description = "the selection";
+        } else {
+            int radius;
+            try {
+                radius = Integer.parseInt(args[from]);
+            } catch (NumberFormatException e) {
+                player.sendMessage(Component.text("Invalid radius: " + args[from], NamedTextColor.RED));
+                return;
+            }
+            if (radius < 0) {
+                player.sendMessage(Component.text("Radius can't be negative.", NamedTextColor.RED));
+                return;
+            }
+            task = AreaTask.radius(this, displayIndex, player, action, glowColor, radius, areaBudgetMicros);
+            description = radius + " blocks";
+        }
+        
+        if (task.chunkCount() > areaMaxChunks) {
+            player.sendMessage(Component.text("That area spans " + task.chunkCount() + " chunks, the limit is " + areaMaxChunks + ".", NamedTextColor.RED));
+            return;
+        }
+        activeAreaTasks.put(player.getUniqueId(), task);
+        task.start();
+        player.sendMessage(Component.text(switch (action) {
+            case NEAR -> "Looking for displays within " + description + "...";
+            case CLEAR -> "Clearing displays within " + description + "...";
+            case RECOLOR -> "Recoloring displays within " + description + " to " + DisplayColors.format(glowColor) + "...";
+        }, NamedTextColor.GREEN));
+    }
+    
+    void areaTaskFinished(UUID playerId, AreaTask task) {
+        activeAreaTasks.remove(playerId, task);
+    }
+    
+    // Target of the click events in /bd near listings
+    private void handleTeleportCommand(CommandSender sender, String[] args) {
+        if (!(sender instanceof Player player) || !player.hasPermission("bd.admin")) {
+            sender.sendMessage(Component.text("You don't have permission to use this command!", NamedTextColor.RED));
+            return;
+        }
+        if (args.length != 5) {
+            player.sendMessage(Component.text("Usage: /bd tp <world> <x> <y> <z>", NamedTextColor.RED));
+            return;
+        }
+        World world = getServer().getWorld(args[1]);
+        if (world == null) {
+            player.sendMessage(Component.text("Unknown world: " + args[1], NamedTextColor.RED));
+            return;
+        }
+        try {
+            // Stand on top of the support block
+            Location target = new Location(world, Integer.parseInt(args[2]) + 0.5, Integer.parseInt(args[3]) + 1.0,
+                    Integer.parseInt(args[4]) + 0.5, player.getLocation().getYaw(), player.getLocation().getPitch());
+            player.teleportAsync(target);
+        } catch (NumberFormatException e) {
+            player.sendMessage(Component.text("Invalid coordinate: " + e.getMessage(), NamedTextColor.RED));
+        }
+    }
+    
+    private void handleVisibilityCommand(CommandSender sender, String[] args) {
+        if (!(sender instanceof Player player)) {
+            sender.sendMessage(Component.text("Only players can choose who sees their displays!", NamedTextColor.RED));
+            return;
+        }
+        
+        if (!player.hasPermission("bd.use")) {
+            sender.sendMessage(Component.text("You don't have permission to use this command!", NamedTextColor.RED));
+            return;
+        }
+        
+        if (args.length < 2) {
+            player.sendMessage(Component.text("Your new displays are visible to "
+                    + DisplayVisibility.describe(visibility.spawnAudience(player.getUniqueId())) + ".", NamedTextColor.GREEN));
+            player.sendMessage(Component.text("Usage: /bd visibility <public|private|group <name>>", NamedTextColor.GRAY));
+            return;
+        }
+        
+        String audience;
+        switch (args[1].toLowerCase(Locale.ROOT)) {
+            case "public" -> audience = null;
+            case "private" -> audience = DisplayVisibility.owner(player.getUniqueId());
+            case "group" -> {
+                String group = args.length > 2 ? args[2].toLowerCase(Locale.ROOT) : null;
+                if (group == null || !visibility.groups().contains(group)) {
+                    player.sendMessage(Component.text("Unknown group, configured groups: "
+                            + String.join(", ", visibility.groups()), NamedTextColor.RED));
+                    return;
+                }
+                if (!visibility.isMember(player, group)) {
+                    player.sendMessage(Component.text("You are not in group " + group + ".", NamedTextColor.RED));
+                    return;
+                }
+                audience = DisplayVisibility.group(group);
+            }
+            default -> {
+                player.sendMessage(Component.text("Usage: /bd visibility <public|private|group <name>>", NamedTextColor.RED));
+                return;
+            }
+        }
+        
+        visibility.setSpawnAudience(player, audience);
+        player.sendMessage(Component.text("Displays you spawn from now on are visible to " + DisplayVisibility.describe(audience) + ".",
+                NamedTextColor.GREEN));
+    }
+    
+    // /bd quota, /bd quota <player|world> (admin), /bd quota reset <player|world> <name> (admin)
+    private void handleQuotaCommand(CommandSender sender, String[] args) {
+        if (args.length < 2) {
+            if (!(sender instanceof Player player)) {
+                sender.sendMessage(Component.text("Usage: /bd quota <player|world> | /bd quota reset <player|world> <name>", NamedTextColor.RED));
+                return;
+            }
+            sendPlayerQuota(sender, player.getUniqueId(), "You have");
+            String world = player.getWorld().getName();
+            sendWorldQuota(sender, world);
+            if (quotas.perChunk() > 0) {
+                sender.sendMessage(Component.text("Up to " + quotas.perChunk() + " displays per chunk.", NamedTextColor.GRAY));
+            }
+            return;
+        }
+        
+        if (!sender.hasPermission("bd.admin")) {
+            sender.sendMessage(Component.text("You don't have permission to view other quotas!", NamedTextColor.RED));
+            return;
+        }
+        
+        boolean reset = args[1].equalsIgnoreCase("reset");
+        String target = reset ? (args.length > 3 ? args[3] : null) : args[1];
+        if (target == null || (reset && !args[2].equalsIgnoreCase("player") && !args[2].equalsIgnoreCase("world"))) {
+            sender.sendMessage(Component.text("Usage: /bd quota reset <player|world> <name>", NamedTextColor.RED));
+            return;
+        }
+        
+        if (reset && args[2].equalsIgnoreCase("world")) {
+            quotas.resetWorld(target);
+            journal.resetWorld(target);
+            sender.sendMessage(Component.text("Reset the display count of " + target + ".", NamedTextColor.GREEN));
+            return;
+        }
+        
+        OfflinePlayer player = getServer().getOfflinePlayerIfCached(target);
+        if (player == null) {
+            if (!reset && getServer().getWorld(target) != null) {
+                sendWorldQuota(sender, target);
+            } else {
+                sender.sendMessage(Component.text("No player or world named " + target + ".", NamedTextColor.RED));
+            }
+            return;
+        }
+        if (reset) {
+            quotas.resetPlayer(player.getUniqueId());
+            journal.resetPlayer(player.getUniqueId().toString());
+            sender.sendMessage(Component.text("Reset the display count of " + player.getName() + ".", NamedTextColor.GREEN));
+        } else {
+            sendPlayerQuota(sender, player.getUniqueId(), player.getName() + " has");
+        }
+    }
+    
+    private void sendPlayerQuota(CommandSender sender, UUID playerId, String subject) {
+        int limit = quotas.perPlayer();
+        sender.sendMessage(Component.text(subject + " " + quotas.playerUsage(playerId)
+                + (limit > 0 ? " of " + limit : "") + " displays.", NamedTextColor.GREEN));
+    }
+    
+    private void sendWorldQuota(CommandSender sender, String world) {
+        int limit = quotas.worldLimit(world);
+        sender.sendMessage(Component.text(world + " holds " + quotas.worldUsage(world)
+                + (limit > 0 ? " of " + limit : "") + " displays.", NamedTextColor.GRAY));
+    }
+    
+    private void handleStatsCommand(CommandSender sender) {
+        if (!sender.hasPermission("bd.admin")) {
+            sender.sendMessage(Component.text("You don't have permission to view stats!", NamedTextColor.RED));
+            return;
+        }
         
-        // Add to glow team
-        if (glowTeam != null) {
-            glowTeam.addEntry(display.getUniqueId().toString());
+        long minutes = (System.nanoTime() - metrics.startedNanos) / 60_000_000_000L;
+        sender.sendMessage(Component.text("BlockDisplay stats, " + minutes + " min since enable", NamedTextColor.GOLD));
+        
+        // Per world display counts
+        Set<UUID> worldIds = new HashSet<>(displayIndex.worldIds());
+        worldIds.addAll(metrics.worlds().keySet());
+        for (UUID worldId : worldIds) {
+            World world = getServer().getWorld(worldId);
+            PluginMetrics.WorldGauges gauges = metrics.worlds().get(worldId);
+            sender.sendMessage(Component.text((world != null ? world.getName() : worldId.toString())
+                    + ": " + displayIndex.size(worldId) + " tracked, "
+                    + (gauges != null ? gauges.loaded.sum() : 0L) + " loaded, "
+                    + (gauges != null ? gauges.entities.sum() : 0L) + " entities", NamedTextColor.GRAY));
         }
         
-        // Track the display with its support block
-        trackedDisplays.put(display.getUniqueId(), new BlockLocation(targetBlock.getLocation(), blockType));
+        sender.sendMessage(Component.text(String.format("Spawned %d (%.1f/min), removed %d (%.1f/min)",
+                metrics.spawned.sum(), metrics.perMinute(metrics.spawned),
+                metrics.removed.sum(), metrics.perMinute(metrics.removed)), NamedTextColor.GRAY));
+        sender.sendMessage(Component.text(String.format("Failsafe: %d checked, %d removed, slice avg %d µs, max %d µs",
+                metrics.sweepChecked.sum(), metrics.sweepRemoved.sum(),
+                metrics.sweepSlice.averageNanos() / 1000L, metrics.sweepSlice.maxNanos() / 1000L), NamedTextColor.GRAY));
+        sender.sendMessage(Component.text(String.format("Persistence: %d flushes, avg %.1f ms, max %.1f ms, journal %d KB, region files %d KB",
+                metrics.flush.count(), metrics.flush.averageNanos() / 1e6, metrics.flush.maxNanos() / 1e6,
+                metrics.journalBytes.sum() / 1024L, metrics.shardBytes.sum() / 1024L), NamedTextColor.GRAY));
+        sender.sendMessage(Component.text("Level of detail: " + metrics.lodChanges.sum() + " chunk re-styles", NamedTextColor.GRAY));
         
-        player.sendMessage(Component.text("Spawned glowing shulker box display with " + glowColor.toString().toLowerCase() + " glow at offset (" + 
-                offsetX + ", " + offsetY + ", " + offsetZ + ")!", NamedTextColor.GREEN));
+        // Handlers by total time spent, the costliest first
+        List<Map.Entry<String, PluginMetrics.Timer>> handlers = new ArrayList<>(metrics.handlers().entrySet());
+        handlers.sort((a, b) -> Long.compare(b.getValue().totalNanos(), a.getValue().totalNanos()));
+        sender.sendMessage(Component.text("Event handlers:", NamedTextColor.GOLD));
+        for (Map.Entry<String, PluginMetrics.Timer> handler : handlers) {
+            PluginMetrics.Timer timer = handler.getValue();
+            sender.sendMessage(Component.text(String.format("%s: %d calls, avg %.2f µs, max %d µs, total %d ms",
+                    handler.getKey(), timer.count(), timer.averageNanos() / 1000.0,
+                    timer.maxNanos() / 1000L, timer.totalNanos() / 1_000_000L), NamedTextColor.GRAY));
+        }
     }
     
     private void handleReloadCommand(CommandSender sender) {
@@ -367,160 +959,941 @@ public class BlockDisplayPlugin extends JavaPlugin implements Listener, CommandE
             return;
         }
         
-        reloadConfig();
-        loadConfiguration();
-        sender.sendMessage(Component.text("Configuration reloaded! New offsets: (" + 
-                offsetX + ", " + offsetY + ", " + offsetZ + "), Default color: " + defaultColor, NamedTextColor.GREEN));
+        // Global state, so it runs on the global region whichever thread the command came from
+        getServer().getGlobalRegionScheduler().execute(this, () -> {
+            reloadConfig();
+            loadConfiguration();
+            startFailsafeTask();
+            startRemeshTask();
+            startAnimationTask();
+            metricsExporter.start();
+            visibility.refreshAll();
+            lod.relevelAll();
+            sender.sendMessage(Component.text("Configuration reloaded! New offsets: (" + 
+                    offsetX + ", " + offsetY + ", " + offsetZ + "), Default color: " + DisplayColors.format(defaultColor)
+                    + ", Templates: " + String.join(", ", templates.keySet()), NamedTextColor.GREEN));
+        });
     }
     
-    @EventHandler
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onBlockBreak(BlockBreakEvent event) {
-        Location blockLoc = event.getBlock().getLocation();
-        removeDisplayAtLocation(blockLoc);
+        long start = System.nanoTime();
+        removeDisplayAtLocation(event.getBlock());
+        metrics.handled(event, start);
     }
     
-    @EventHandler
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onEntityChangeBlock(EntityChangeBlockEvent event) {
-        if (event.getTo() == Material.AIR) {
-            Location blockLoc = event.getBlock().getLocation();
-            removeDisplayAtLocation(blockLoc);
+        long start = System.nanoTime();
+        // Endermen, silverfish, falling blocks and the like replace the support block
+        Block block = event.getBlock();
+        if (event.getTo() != block.getType()) {
+            removeDisplayAtLocation(block);
         }
+        metrics.handled(event, start);
     }
     
-    @EventHandler
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onBlockPistonExtend(BlockPistonExtendEvent event) {
-        for (Block block : event.getBlocks()) {
-            removeDisplayAtLocation(block.getLocation());
-        }
+        long start = System.nanoTime();
+        Block piston = event.getBlock();
+        relocateDisplays(piston.getWorld(), event.getBlocks(), event.getDirection(), piston.getRelative(event.getDirection()));
+        metrics.handled(event, start);
     }
     
-    @EventHandler
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onBlockPistonRetract(BlockPistonRetractEvent event) {
-        for (Block block : event.getBlocks()) {
-            removeDisplayAtLocation(block.getLocation());
+        long start = System.nanoTime();
+        // Both events report the direction the blocks move in
+        relocateDisplays(event.getBlock().getWorld(), event.getBlocks(), event.getDirection(), null);
+        metrics.handled(event, start);
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+        long start = System.nanoTime();
+        removeDisplaysAt(event.getEntity().getWorld(), event.blockList());
+        metrics.handled(event, start);
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        long start = System.nanoTime();
+        removeDisplaysAt(event.getBlock().getWorld(), event.blockList());
+        metrics.handled(event, start);
+    }
+    
+    // The handlers below see very high event rates; the occupancy bit check in the index
+    // rejects almost all of them without taking a lock or allocating
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBurn(BlockBurnEvent event) {
+        long start = System.nanoTime();
+        removeDisplayAtLocation(event.getBlock());
+        metrics.handled(event, start);
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFade(BlockFadeEvent event) {
+        long start = System.nanoTime();
+        removeDisplayAtLocation(event.getBlock());
+        metrics.handled(event, start);
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockForm(BlockFormEvent event) {
+        long start = System.nanoTime();
+        removeDisplayAtLocation(event.getBlock());
+        metrics.handled(event, start);
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockSpread(BlockSpreadEvent event) {
+        long start = System.nanoTime();
+        removeDisplayAtLocation(event.getBlock());
+        metrics.handled(event, start);
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onLeavesDecay(LeavesDecayEvent event) {
+        long start = System.nanoTime();
+        removeDisplayAtLocation(event.getBlock());
+        metrics.handled(event, start);
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onTntPrime(TNTPrimeEvent event) {
+        long start = System.nanoTime();
+        removeDisplayAtLocation(event.getBlock());
+        metrics.handled(event, start);
+    }
+    
+    // Physics, fluids and tree growth don't always change the block, so those displays
+    // are only queued for a check on the next sweep once the change has applied
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPhysics(BlockPhysicsEvent event) {
+        long start = System.nanoTime();
+        suspectDisplayAt(event.getBlock());
+        metrics.handled(event, start);
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFromTo(BlockFromToEvent event) {
+        long start = System.nanoTime();
+        suspectDisplayAt(event.getToBlock());
+        metrics.handled(event, start);
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onStructureGrow(StructureGrowEvent event) {
+        long start = System.nanoTime();
+        UUID worldId = event.getWorld().getUID();
+        for (BlockState state : event.getBlocks()) {
+            DisplayRecord record = displayIndex.get(worldId, state.getX(), state.getY(), state.getZ());
+            if (record != null) {
+                suspectDisplay(event.getWorld(), record);
+            }
         }
+        metrics.handled(event, start);
+    }
+    
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        long start = System.nanoTime();
+        // Entities load a while after the chunk, the region's shard is read in the meantime and
+        // the chunk's displays are indexed once it's in, so block events see them
+        World world = event.getWorld();
+        int chunkX = event.getChunk().getX(), chunkZ = event.getChunk().getZ();
+        CompletableFuture<Void> read = regionLoader.prefetch(world, chunkX, chunkZ);
+        if (read.isDone()) {
+            ensureChunkLoaded(world, chunkX, chunkZ);
+        } else {
+            read.thenRun(() -> runAtChunk(world, chunkX, chunkZ, () -> ensureChunkLoaded(world, chunkX, chunkZ)));
+        }
+        metrics.handled(event, start);
     }
     
     @EventHandler
-    public void onEntityExplode(EntityExplodeEvent event) {
-        for (Block block : event.blockList()) {
-            removeDisplayAtLocation(block.getLocation());
+    public void onEntitiesLoad(EntitiesLoadEvent event) {
+        long start = System.nanoTime();
+        World world = event.getWorld();
+        int chunkX = event.getChunk().getX(), chunkZ = event.getChunk().getZ();
+        CompletableFuture<Void> read = regionLoader.prefetch(world, chunkX, chunkZ);
+        if (read.isDone()) {
+            loadChunkEntities(world, chunkX, chunkZ, event.getEntities());
+        } else {
+            // Still reading the shard; finish on the chunk's region once it's in, with whatever entities are there then
+            read.thenRun(() -> runAtChunk(world, chunkX, chunkZ, () -> {
+                if (world.isChunkLoaded(chunkX, chunkZ)) {
+                    Chunk chunk = world.getChunkAt(chunkX, chunkZ);
+                    if (chunk.isEntitiesLoaded()) {
+                        loadChunkEntities(world, chunkX, chunkZ, Arrays.asList(chunk.getEntities()));
+                    }
+                }
+            }));
+        }
+        metrics.handled(event, start);
+    }
+    
+    // Re-links the saved entities of a chunk, spawns whatever is missing and verifies it first
+    private void loadChunkEntities(World world, int chunkX, int chunkZ, Iterable<Entity> entities) {
+        ensureChunkLoaded(world, chunkX, chunkZ);
+        adoptEntities(world, entities);
+        ChunkBucket bucket = displayIndex.bucket(world.getUID(), chunkX, chunkZ);
+        if (bucket != null) {
+            materializeChunk(world, bucket);
+            failsafeSweeper.touch(bucket);
         }
     }
     
     @EventHandler
-    public void onBlockExplode(BlockExplodeEvent event) {
-        for (Block block : event.blockList()) {
-            removeDisplayAtLocation(block.getLocation());
+    public void onEntitiesUnload(EntitiesUnloadEvent event) {
+        long start = System.nanoTime();
+        // The entities are saved with the chunk, only unlink them from their records
+        ChunkBucket bucket = displayIndex.bucket(event.getWorld().getUID(), event.getChunk().getChunkKey());
+        if (bucket != null) {
+            releaseChunk(bucket);
         }
+        metrics.handled(event, start);
+    }
+    
+    @EventHandler
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        long start = System.nanoTime();
+        // Displays with an audience are hidden by default, show this player the ones they belong to
+        visibility.join(event.getPlayer());
+        metrics.handled(event, start);
+    }
+    
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        long start = System.nanoTime();
+        visibility.quit(event.getPlayer());
+        metrics.handled(event, start);
     }
     
     @EventHandler
-    public void onPluginDisable(PluginDisableEvent event) {
-        if (event.getPlugin() == this) {
-            cleanupAllDisplays();
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        long start = System.nanoTime();
+        visibility.changedWorld(event.getPlayer());
+        metrics.handled(event, start);
+    }
+    
+    private void removeDisplayAtLocation(Block block) {
+        // Find display by support block key, no Location allocation
+        DisplayRecord record = displayIndex.get(block.getWorld().getUID(), block.getX(), block.getY(), block.getZ());
+        
+        if (record != null) {
+            removeDisplay(record);
+        }
+    }
+    
+    private void suspectDisplayAt(Block block) {
+        DisplayRecord record = displayIndex.get(block.getWorld().getUID(), block.getX(), block.getY(), block.getZ());
+        if (record != null) {
+            suspectDisplay(block.getWorld(), record);
+        }
+    }
+    
+    // Verifies the display on its region next tick, once the block change has applied
+    private void suspectDisplay(World world, DisplayRecord record) {
+        suspectDisplay(world, record, 1L);
+    }
+    
+    private void suspectDisplay(World world, DisplayRecord record, long delayTicks) {
+        if (record.suspected) {
+            return;
         }
+        record.suspected = true;
+        getServer().getRegionScheduler().runDelayed(this, world, record.x() >> 4, record.z() >> 4, task -> {
+            record.suspected = false;
+            if (world.isChunkLoaded(record.x() >> 4, record.z() >> 4)) {
+                verifyDisplay(world, record);
+            }
+        }, delayTicks);
     }
     
-    private void removeDisplayAtLocation(Location blockLoc) {
-        // Find display by support block location
-        UUID displayToRemove = null;
-        for (Map.Entry<UUID, BlockLocation> entry : trackedDisplays.entrySet()) {
-            if (entry.getValue().location.equals(blockLoc)) {
-                displayToRemove = entry.getKey();
-                break;
+    // Moves the displays on blocks a piston pushes or pulls along with them. The tracker is re-keyed
+    // in one batch; a cuboid that moved as a whole keeps its entity, which slides to the new spot with
+    // teleport interpolation. Cuboids the push cut apart, or pushed across a chunk border, are split.
+    private void relocateDisplays(World world, List<Block> blocks, BlockFace direction, Block head) {
+        int dx = direction.getModX(), dy = direction.getModY(), dz = direction.getModZ();
+        // Blocks pushed into a chunk whose displays are still on disk must not be written over by them later
+        for (Block block : blocks) {
+            ensureChunkLoaded(world, (block.getX() + dx) >> 4, (block.getZ() + dz) >> 4);
+        }
+        
+        // The event only lists the blocks that move. Whatever the head or the front of a moved block
+        // runs into is broken by the piston, so its display goes with it
+        UUID worldId = world.getUID();
+        Set<DisplayRecord> lost = new LinkedHashSet<>();
+        if (blocks.isEmpty()) {
+            if (head != null) {
+                DisplayRecord target = displayIndex.get(worldId, head.getX(), head.getY(), head.getZ());
+                if (target != null) {
+                    lost.add(target);
+                }
+            }
+        } else {
+            Set<Long> origins = new HashSet<>();
+            for (Block block : blocks) {
+                origins.add(BlockKey.pack(block.getX(), block.getY(), block.getZ()));
+            }
+            for (Block block : blocks) {
+                int x = block.getX() + dx, y = block.getY() + dy, z = block.getZ() + dz;
+                if (!origins.contains(BlockKey.pack(x, y, z))) {
+                    DisplayRecord target = displayIndex.get(worldId, x, y, z);
+                    if (target != null) {
+                        lost.add(target);
+                    }
+                }
+            }
+        }
+        if (!lost.isEmpty()) {
+            removeDisplays(world, new ArrayList<>(lost));
+        }
+        
+        List<DisplayRecord> hits = displayIndex.collect(worldId, blocks,
+                block -> BlockKey.pack(block.getX(), block.getY(), block.getZ()));
+        if (hits == null) {
+            return;
+        }
+        Set<DisplayRecord> moving = new LinkedHashSet<>(hits);
+        if (moving.isEmpty()) {
+            return;
+        }
+        
+        // Entities leave their chunk's counts while the old records are still indexed
+        List<DisplayMesh> kept = new ArrayList<>();
+        List<DisplayMesh> split = new ArrayList<>();
+        Set<DisplayMesh> meshes = new LinkedHashSet<>();
+        for (DisplayRecord record : moving) {
+            if (record.mesh != null) {
+                meshes.add(record.mesh);
+            }
+        }
+        for (DisplayMesh mesh : meshes) {
+            if (movesWhole(mesh, moving, dx, dz)) {
+                unlinkMesh(world, mesh);
+                kept.add(mesh);
+            } else {
+                despawnMesh(world, mesh);
+                split.add(mesh);
+            }
+        }
+        
+        // Re-key every moved display at once, so a chain of pushed supports never collides with itself
+        String worldName = world.getName();
+        for (DisplayRecord record : moving) {
+            displayIndex.remove(record);
+            journal.remove(worldName, record.blockKey);
+        }
+        Map<DisplayRecord, DisplayRecord> moved = new HashMap<>();
+        Set<ChunkBucket> touched = new LinkedHashSet<>();
+        for (DisplayRecord record : moving) {
+            DisplayRecord next = new DisplayRecord(record.worldId, BlockKey.pack(record.x() + dx, record.y() + dy, record.z() + dz),
+                    record.material, record.template, record.glowColor, record.audience, record.owner,
+                    record.offsetX, record.offsetY, record.offsetZ);
+            moved.put(record, next);
+            touched.add(displayIndex.put(next));
+            journal.put(toDisplayData(worldName, next));
+        }
+        
+        // Whole cuboids keep their entity and slide along with the blocks
+        for (DisplayMesh mesh : kept) {
+            List<DisplayRecord> members = new ArrayList<>(mesh.members.size());
+            for (DisplayRecord member : mesh.members) {
+                members.add(moved.get(member));
+            }
+            DisplayMesh next = new DisplayMesh(members, mesh.minX + dx, mesh.minY + dy, mesh.minZ + dz,
+                    mesh.sizeX, mesh.sizeY, mesh.sizeZ);
+            linkMesh(world, next, mesh.entityId);
+            if (world.getEntity(mesh.entityId) instanceof BlockDisplay display) {
+                DisplayRecord first = next.template();
+                tagEntity(display.getPersistentDataContainer(), next);
+                display.setTeleportDuration(PISTON_MOVE_TICKS);
+                display.teleportAsync(new Location(world, next.minX + first.offsetX, next.minY + first.offsetY, next.minZ + first.offsetZ));
+            }
+        }
+        
+        // Split cuboids: what stayed is re-meshed in place, moved pieces per chunk they landed in
+        Map<Long, List<DisplayRecord>> loose = new HashMap<>();
+        for (DisplayMesh mesh : split) {
+            List<DisplayRecord> rest = new ArrayList<>(mesh.members.size());
+            for (DisplayRecord member : mesh.members) {
+                DisplayRecord next = moved.get(member);
+                if (next != null) {
+                    loose.computeIfAbsent(BlockKey.chunkKeyOf(next.blockKey), key -> new ArrayList<>()).add(next);
+                } else if (displayIndex.get(member.worldId, member.blockKey) == member) {
+                    rest.add(member);
+                }
+            }
+            for (DisplayMesh part : GreedyMesher.mesh(rest)) {
+                spawnMesh(world, part);
+            }
+        }
+        for (List<DisplayRecord> records : loose.values()) {
+            for (DisplayMesh part : buildMeshes(records)) {
+                spawnMesh(world, part);
             }
         }
         
-        if (displayToRemove != null) {
-            removeDisplay(displayToRemove);
+        for (ChunkBucket bucket : touched) {
+            markForRemesh(bucket);
+        }
+        // The new supports are moving pistons until the push completes, check them once it has
+        for (DisplayRecord next : moved.values()) {
+            suspectDisplay(world, next, PISTON_MOVE_TICKS + 1L);
         }
     }
     
-    private void removeDisplay(UUID displayId) {
-        // Find and remove the entity
-        for (World world : getServer().getWorlds()) {
-            Entity entity = world.getEntity(displayId);
-            if (entity instanceof BlockDisplay) {
-                entity.remove();
-                break;
+    // Whether every block of the cuboid moves and it still fits in one chunk afterwards
+    private static boolean movesWhole(DisplayMesh mesh, Set<DisplayRecord> moving, int dx, int dz) {
+        for (DisplayRecord member : mesh.members) {
+            if (!moving.contains(member)) {
+                return false;
             }
         }
-        
-        // Remove from team
-        if (glowTeam != null) {
-            glowTeam.removeEntry(displayId.toString());
+        int minX = mesh.minX + dx, minZ = mesh.minZ + dz;
+        return minX >> 4 == (minX + mesh.sizeX - 1) >> 4 && minZ >> 4 == (minZ + mesh.sizeZ - 1) >> 4;
+    }
+    
+    // Removes every display on the blocks in a single batch
+    private void removeDisplaysAt(World world, List<Block> blocks) {
+        List<DisplayRecord> hits = displayIndex.collect(world.getUID(), blocks,
+                block -> BlockKey.pack(block.getX(), block.getY(), block.getZ()));
+        if (hits != null) {
+            removeDisplays(world, hits);
+        }
+    }
+    
+    private void removeDisplay(DisplayRecord record) {
+        removeDisplays(getServer().getWorld(record.worldId), List.of(record));
+    }
+    
+    // Removes displays of one world; each affected cuboid is split once, however many of its blocks went
+    void removeDisplays(World world, List<DisplayRecord> records) {
+        Set<DisplayMesh> split = new HashSet<>();
+        for (DisplayRecord record : records) {
+            if (record.mesh != null) {
+                split.add(record.mesh);
+            }
+            forgetDisplay(world, record);
         }
         
-        // Remove from tracking
-        trackedDisplays.remove(displayId);
+        // Re-mesh what is still tracked of each cuboid into the smaller ones needed
+        for (DisplayMesh mesh : split) {
+            despawnMesh(world, mesh);
+            if (world == null || mesh.isSingle()) {
+                continue;
+            }
+            List<DisplayRecord> rest = new ArrayList<>(mesh.members.size());
+            for (DisplayRecord member : mesh.members) {
+                if (displayIndex.get(member.worldId, member.blockKey) == member) {
+                    rest.add(member);
+                }
+            }
+            for (DisplayMesh part : GreedyMesher.mesh(rest)) {
+                spawnMesh(world, part);
+            }
+        }
     }
     
-    private void cleanupAllDisplays() {
-        for (UUID displayId : trackedDisplays.keySet()) {
-            // Remove entity
-            for (World world : getServer().getWorlds()) {
-                Entity entity = world.getEntity(displayId);
-                if (entity instanceof BlockDisplay) {
-                    entity.remove();
+    // Recolors displays of one world and returns how many changed. Cuboids recolored as a whole keep
+    // their entity; partly recolored ones are split, and chunks re-merge once they settle.
+    int recolorDisplays(World world, List<DisplayRecord> records, int glowColor) {
+        Set<DisplayMesh> touched = new HashSet<>();
+        ChunkBucket lastBucket = null;
+        int changed = 0;
+        for (DisplayRecord record : records) {
+            if (record.glowColor == glowColor || displayIndex.get(record.worldId, record.blockKey) != record) {
+                continue;
+            }
+            record.glowColor = glowColor;
+            journal.put(toDisplayData(world.getName(), record));
+            changed++;
+            if (record.mesh != null) {
+                touched.add(record.mesh);
+            }
+            ChunkBucket bucket = displayIndex.bucket(record.worldId, BlockKey.chunkKeyOf(record.blockKey));
+            if (bucket != null && bucket != lastBucket) {
+                markForRemesh(bucket);
+                lastBucket = bucket;
+            }
+        }
+        
+        for (DisplayMesh mesh : touched) {
+            boolean uniform = true;
+            for (DisplayRecord member : mesh.members) {
+                if (member.glowColor != glowColor) {
+                    uniform = false;
                     break;
                 }
             }
+            Entity entity = world.getEntity(mesh.entityId);
+            if (uniform && entity instanceof BlockDisplay display) {
+                display.setGlowColorOverride(Color.fromRGB(glowColor));
+                tagEntity(display.getPersistentDataContainer(), mesh);
+                continue;
+            }
+            despawnMesh(world, mesh);
+            List<DisplayRecord> rest = new ArrayList<>(mesh.members.size());
+            for (DisplayRecord member : mesh.members) {
+                if (displayIndex.get(member.worldId, member.blockKey) == member) {
+                    rest.add(member);
+                }
+            }
+            for (DisplayMesh part : GreedyMesher.mesh(rest)) {
+                spawnMesh(world, part);
+            }
         }
-        trackedDisplays.clear();
+        return changed;
     }
     
-    public static BlockDisplayPlugin getInstance() {
-        return instance;
+    private void removeMesh(World world, DisplayMesh mesh) {
+        despawnMesh(world, mesh);
+        for (DisplayRecord member : mesh.members) {
+            forgetDisplay(world, member);
+        }
+    }
+    
+    // Remove from tracking
+    private void forgetDisplay(World world, DisplayRecord record) {
+        if (displayIndex.remove(record)) {
+            metrics.removed.increment();
+            if (world != null) {
+                journal.removeCounted(world.getName(), record.blockKey, record.owner != null ? record.owner.toString() : null);
+                quotas.release(world.getName(), record.owner);
+            }
+        }
     }
     
-    // Helper class to store block location and material type
-    private static class BlockLocation {
-        final Location location;
-        final Material originalMaterial;
+    private BlockDisplay spawnMesh(World world, DisplayMesh mesh) {
+        DisplayRecord first = mesh.template();
+        Location spawnLoc = new Location(world, mesh.minX + first.offsetX, mesh.minY + first.offsetY, mesh.minZ + first.offsetZ);
+        DisplayTemplate template = first.template;
+        Color glowColor = Color.fromRGB(first.glowColor);
+        ChunkBucket bucket = displayIndex.bucket(first.worldId, BlockKey.chunkKey(mesh.minX >> 4, mesh.minZ >> 4));
+        // Crowded chunks spawn new entities at their current level of detail
+        DisplayLod.Tier tier = lod.tier(world, bucket);
+        
+        // Block data, brightness and scale are the template's shared instances
+        BlockDisplay display = world.spawn(spawnLoc, BlockDisplay.class, entity -> {
+            entity.setBlock(template.block);
+            entity.setGlowColorOverride(glowColor);
+            entity.setInterpolationDuration(0);
+            if (template.brightness != null) {
+                entity.setBrightness(template.brightness);
+            }
+            DisplayLod.style(entity, template, tier);
+            if (first.audience != null) {
+                // Hidden before it is added to the world, so no spawn packet reaches non-members
+                entity.setVisibleByDefault(false);
+            }
+            // Saved with the chunk and adopted again when it loads, tagged so it can be matched to its records
+            entity.setPersistent(true);
+            tagEntity(entity.getPersistentDataContainer(), mesh);
+            if (!mesh.isSingle()) {
+                // One display scaled over the whole cuboid
+                entity.setTransformation(new Transformation(new Vector3f(), new Quaternionf(),
+                        new Vector3f(mesh.sizeX, mesh.sizeY, mesh.sizeZ), new Quaternionf()));
+            } else if (template.transformation != null) {
+                entity.setTransformation(template.transformation);
+            }
+        });
         
-        BlockLocation(Location location, Material originalMaterial) {
-            this.location = location.clone();
-            this.originalMaterial = originalMaterial;
+        linkMesh(world, mesh, display.getUniqueId());
+        if (first.audience != null) {
+            visibility.track(world, display, first.audience);
         }
+        return display;
     }
     
-    // Data class for JSON serialization
-    private static class DisplayData {
-        public String world;
-        public int x;
-        public int y;
-        public int z;
-        public String glowColor;
-        public double offsetX;
-        public double offsetY;
-        public double offsetZ;
+    // Points the mesh's records at its entity and counts it towards its chunk's density
+    private void linkMesh(World world, DisplayMesh mesh, UUID entityId) {
+        mesh.entityId = entityId;
+        for (DisplayRecord member : mesh.members) {
+            member.mesh = mesh;
+        }
+        PluginMetrics.WorldGauges gauges = metrics.world(mesh.template().worldId);
+        gauges.loaded.add(mesh.members.size());
+        gauges.entities.increment();
+        ChunkBucket bucket = displayIndex.bucket(mesh.template().worldId, BlockKey.chunkKey(mesh.minX >> 4, mesh.minZ >> 4));
+        if (bucket != null) {
+            lod.changed(world, bucket, 1);
+            if (mesh.template().template.animation != null) {
+                bucket.animated++;
+                animationEngine.start(bucket);
+            }
+        }
     }
     
-    private void startFailsafeTask() {
-        failsafeTask = getServer().getScheduler().runTaskTimer(this, () -> {
-            // Iterate through tracked displays and check if their support blocks still exist
-            trackedDisplays.entrySet().removeIf(entry -> {
-                UUID displayId = entry.getKey();
-                BlockLocation blockLoc = entry.getValue();
-                
-                Block block = blockLoc.location.getBlock();
-                Entity entity = getServer().getEntity(displayId);
-                
-                // Check if block is no longer solid or changed type, or entity doesn't exist
-                boolean shouldRemove = !block.getType().isSolid() || 
-                                     block.getType() != blockLoc.originalMaterial ||
-                                     !(entity instanceof BlockDisplay);
-                
-                if (shouldRemove && entity != null) {
-                    entity.remove();
-                    if (glowTeam != null) {
-                        glowTeam.removeEntry(entity.getUniqueId().toString());
+    private void despawnMesh(World world, DisplayMesh mesh) {
+        Entity entity = world != null ? world.getEntity(mesh.entityId) : null;
+        if (entity instanceof BlockDisplay) {
+            entity.remove();
+        }
+        if (mesh.template().audience != null) {
+            visibility.untrack(mesh.template().worldId, mesh.entityId, mesh.template().audience);
+        }
+        unlinkMesh(world, mesh);
+    }
+    
+    // Points the mesh's records away from its entity and takes it off its chunk's density
+    private void unlinkMesh(World world, DisplayMesh mesh) {
+        int unlinked = 0;
+        for (DisplayRecord member : mesh.members) {
+            if (member.mesh == mesh) {
+                member.mesh = null;
+                unlinked++;
+            }
+        }
+        if (unlinked > 0) {
+            PluginMetrics.WorldGauges gauges = metrics.world(mesh.template().worldId);
+            gauges.loaded.add(-unlinked);
+            gauges.entities.decrement();
+            // A bucket emptied by the removal is already gone from the index, along with its count
+            ChunkBucket bucket = displayIndex.bucket(mesh.template().worldId, BlockKey.chunkKey(mesh.minX >> 4, mesh.minZ >> 4));
+            if (world != null && bucket != null) {
+                lod.changed(world, bucket, -1);
+                if (mesh.template().template.animation != null) {
+                    bucket.animated--;
+                }
+            }
+        }
+    }
+    
+    // Merges same-color neighbours into cuboids unless merging is turned off
+    private List<DisplayMesh> buildMeshes(List<DisplayRecord> records) {
+        if (mergeEnabled) {
+            return GreedyMesher.mesh(records);
+        }
+        List<DisplayMesh> meshes = new ArrayList<>(records.size());
+        for (DisplayRecord record : records) {
+            meshes.add(DisplayMesh.single(record));
+        }
+        return meshes;
+    }
+    
+    private void materializeChunk(World world, ChunkBucket bucket) {
+        List<DisplayRecord> records = new ArrayList<>(bucket.size());
+        bucket.forEach(record -> {
+            if (record.mesh != null) {
+                return;
+            }
+            if (record.material == null) {
+                captureMaterial(world, record, world.getBlockAt(record.x(), record.y(), record.z()).getType());
+            }
+            records.add(record);
+        });
+        for (DisplayMesh mesh : buildMeshes(records)) {
+            spawnMesh(world, mesh);
+        }
+    }
+    
+    // Records migrated from files without a material learn it on first load
+    private void captureMaterial(World world, DisplayRecord record, Material type) {
+        record.material = type;
+        journal.put(toDisplayData(world.getName(), record));
+    }
+    
+    private void releaseChunk(ChunkBucket bucket) {
+        lod.released(bucket);
+        // Animation pauses with the chunk; adopted entities start it again
+        bucket.animated = 0;
+        PluginMetrics.WorldGauges gauges = metrics.world(bucket.worldId);
+        bucket.forEach(record -> {
+            if (record.mesh == null) {
+                return;
+            }
+            // Cuboids never cross chunks, so each entity is counted once via its template
+            if (record.mesh.template() == record) {
+                gauges.entities.decrement();
+                if (record.audience != null) {
+                    visibility.untrack(bucket.worldId, record.mesh.entityId, record.audience);
+                }
+            }
+            gauges.loaded.decrement();
+            record.mesh = null;
+        });
+    }
+    
+    private void tagEntity(PersistentDataContainer tags, DisplayMesh mesh) {
+        tags.set(supportTag, PersistentDataType.LONG, BlockKey.pack(mesh.minX, mesh.minY, mesh.minZ));
+        tags.set(colorTag, PersistentDataType.STRING, DisplayColors.format(mesh.template().glowColor));
+        tags.set(templateTag, PersistentDataType.STRING, mesh.template().template.name);
+        if (mesh.template().audience != null) {
+            tags.set(audienceTag, PersistentDataType.STRING, mesh.template().audience);
+        }
+        if (!mesh.isSingle()) {
+            tags.set(sizeTag, PersistentDataType.INTEGER_ARRAY, new int[] {mesh.sizeX, mesh.sizeY, mesh.sizeZ});
+        }
+    }
+    
+    // Links saved display entities back to their records. Entities whose records are gone,
+    // changed, or already rendered by another entity are orphans and get removed.
+    private void adoptEntities(World world, Iterable<Entity> entities) {
+        for (Entity entity : entities) {
+            if (!(entity instanceof BlockDisplay)) {
+                continue;
+            }
+            PersistentDataContainer tags = entity.getPersistentDataContainer();
+            Long support = tags.get(supportTag, PersistentDataType.LONG);
+            if (support == null) {
+                continue;
+            }
+            
+            DisplayMesh mesh = matchMesh(world, support, tags);
+            if (mesh == null) {
+                entity.remove();
+                continue;
+            }
+            // Saved with the level of detail its chunk had back then
+            ChunkBucket bucket = displayIndex.bucket(world.getUID(), BlockKey.chunkKeyOf(support));
+            DisplayLod.style((BlockDisplay) entity, mesh.template().template, lod.tier(world, bucket));
+            linkMesh(world, mesh, entity.getUniqueId());
+            if (mesh.template().audience != null) {
+                visibility.track(world, entity, mesh.template().audience);
+            }
+        }
+    }
+    
+    private DisplayMesh matchMesh(World world, long support, PersistentDataContainer tags) {
+        int x = BlockKey.x(support), y = BlockKey.y(support), z = BlockKey.z(support);
+        ensureChunkLoaded(world, x >> 4, z >> 4);
+        ChunkBucket bucket = displayIndex.bucket(world.getUID(), BlockKey.chunkKeyOf(support));
+        if (bucket == null) {
+            return null;
+        }
+        
+        int[] size = tags.get(sizeTag, PersistentDataType.INTEGER_ARRAY);
+        int sizeX = size != null ? size[0] : 1, sizeY = size != null ? size[1] : 1, sizeZ = size != null ? size[2] : 1;
+        int color;
+        try {
+            color = DisplayColors.parse(tags.getOrDefault(colorTag, PersistentDataType.STRING, ""));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        // Entities from before templates rendered the built-in look
+        String template = tags.getOrDefault(templateTag, PersistentDataType.STRING, defaultTemplate.name);
+        String audience = tags.get(audienceTag, PersistentDataType.STRING);
+        
+        List<DisplayRecord> members = new ArrayList<>(sizeX * sizeY * sizeZ);
+        DisplayRecord first = null;
+        for (int dy = 0; dy < sizeY; dy++) {
+            for (int dz = 0; dz < sizeZ; dz++) {
+                for (int dx = 0; dx < sizeX; dx++) {
+                    DisplayRecord record = bucket.get(BlockKey.pack(x + dx, y + dy, z + dz));
+                    if (record == null || record.mesh != null || record.glowColor != color || !record.template.name.equals(template)
+                            || !Objects.equals(record.audience, audience)) {
+                        return null;
                     }
-                    return true; // Remove from map
+                    if (first == null) {
+                        first = record;
+                    } else if (record.offsetX != first.offsetX || record.offsetY != first.offsetY || record.offsetZ != first.offsetZ) {
+                        return null;
+                    }
+                    members.add(record);
                 }
-                return false; // Keep in map
-            });
-        }, 40L, 40L); // Every 2 seconds (40 ticks)
+            }
+        }
+        return new DisplayMesh(members, x, y, z, sizeX, sizeY, sizeZ);
+    }
+    
+    private void materializeLoadedChunks() {
+        // Folia can't reload plugins and enables before any region ticks, so every chunk
+        // fires its own EntitiesLoadEvent there
+        if (FOLIA) {
+            return;
+        }
+        List<Chunk> loaded = new ArrayList<>();
+        for (World world : getServer().getWorlds()) {
+            for (Chunk chunk : world.getLoadedChunks()) {
+                prefetchChunk(world, chunk.getX(), chunk.getZ());
+                loaded.add(chunk);
+            }
+        }
+        // Every shard is read in the background first, then the chunks take their displays in turn
+        for (Chunk chunk : loaded) {
+            World world = chunk.getWorld();
+            ensureChunkLoaded(world, chunk.getX(), chunk.getZ());
+            ChunkBucket bucket = displayIndex.bucket(world.getUID(), chunk.getChunkKey());
+            if (!chunk.isEntitiesLoaded()) {
+                continue;
+            }
+            // Entities kept from the last run, or a reload, are adopted rather than respawned
+            adoptEntities(world, Arrays.asList(chunk.getEntities()));
+            if (bucket != null) {
+                materializeChunk(world, bucket);
+            }
+        }
+    }
+    
+    public static BlockDisplayPlugin getInstance() {
+        return instance;
+    }
+    
+    private static boolean isFolia() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+    
+    private void startFailsafeTask() {
+        if (failsafeTask != null) {
+            failsafeTask.cancel();
+        }
+        // Picks a slice of displays per run on the global region and verifies it on each chunk's region,
+        // covering all of them once per period
+        failsafeTask = getServer().getGlobalRegionScheduler().runAtFixedRate(this, task -> failsafeSweeper.run(),
+                failsafeIntervalTicks, failsafeIntervalTicks);
+    }
+    
+    // Runs chunk-local work (spawns, checks, removals) on the region owning the chunk;
+    // on plain Paper this is the main thread
+    void runAtChunk(World world, int chunkX, int chunkZ, Runnable task) {
+        getServer().getRegionScheduler().execute(this, world, chunkX, chunkZ, task);
+    }
+    
+    private void startRemeshTask() {
+        if (remeshTask != null) {
+            remeshTask.cancel();
+            remeshTask = null;
+        }
+        if (mergeEnabled) {
+            remeshTask = getServer().getGlobalRegionScheduler().runAtFixedRate(this, task -> remeshQueue.run(), 1L, 1L);
+        } else {
+            remeshQueue.clear();
+        }
+    }
+    
+    private void startAnimationTask() {
+        if (animationTask != null) {
+            animationTask.cancel();
+        }
+        animationTask = getServer().getGlobalRegionScheduler().runAtFixedRate(this, task -> animationEngine.run(), 1L, 1L);
+    }
+    
+    // Called by the animation engine on the chunk's region when its next keyframe is due
+    void animateChunk(World world, ChunkBucket bucket) {
+        if (bucket.animated <= 0 || displayIndex.bucket(bucket.worldId, bucket.chunkKey) != bucket
+                || !world.isChunkLoaded(bucket.chunkX(), bucket.chunkZ())) {
+            animationEngine.stop(bucket);
+            return;
+        }
+        
+        long tick = animationEngine.tick();
+        // Nobody sees the chunk, so its keyframes would only be sent to no one; check again later
+        if (world.getChunkAt(bucket.chunkX(), bucket.chunkZ()).getPlayersSeeingChunk().isEmpty()) {
+            animationEngine.reschedule(bucket, tick + animationEngine.idleCheckTicks());
+            return;
+        }
+        
+        // Glow animations have nothing to show while the chunk's level of detail drops the glow
+        boolean glowing = lod.tier(world, bucket).glow();
+        long[] next = {Long.MAX_VALUE};
+        bucket.forEach(record -> {
+            DisplayMesh mesh = record.mesh;
+            DisplayAnimation animation = record.template.animation;
+            if (mesh == null || mesh.template() != record || animation == null) {
+                return;
+            }
+            next[0] = Math.min(next[0], animation.nextKeyframeTick(tick));
+            if (!glowing && animation.mode() != DisplayAnimation.Mode.BREATHE) {
+                return;
+            }
+            Entity entity = world.getEntity(mesh.entityId);
+            if (entity instanceof BlockDisplay display) {
+                animation.apply(display, mesh, animation.keyframe(tick));
+            }
+        });
+        if (next[0] == Long.MAX_VALUE) {
+            animationEngine.stop(bucket);
+        } else {
+            animationEngine.reschedule(bucket, next[0]);
+        }
+    }
+    
+    private void markForRemesh(ChunkBucket bucket) {
+        if (mergeEnabled) {
+            remeshQueue.markDirty(bucket);
+        }
+    }
+    
+    // Called by the remesh queue on the chunk's region once its displays have settled
+    void remeshChunk(World world, ChunkBucket bucket) {
+        if (displayIndex.bucket(bucket.worldId, bucket.chunkKey) != bucket
+                || !world.isChunkLoaded(bucket.chunkX(), bucket.chunkZ())) {
+            return;
+        }
+        
+        List<DisplayRecord> records = new ArrayList<>(bucket.size());
+        Set<DisplayMesh> current = new HashSet<>();
+        bucket.forEach(record -> {
+            if (record.mesh != null) {
+                records.add(record);
+                current.add(record.mesh);
+            }
+        });
+        
+        // Only swap entities when the chunk actually merges further
+        List<DisplayMesh> meshes = GreedyMesher.mesh(records);
+        if (meshes.size() >= current.size()) {
+            return;
+        }
+        for (DisplayMesh mesh : current) {
+            despawnMesh(world, mesh);
+        }
+        for (DisplayMesh mesh : meshes) {
+            spawnMesh(world, mesh);
+        }
+    }
+    
+    // Called by the failsafe sweeper for one display in a loaded chunk; returns whether it was removed
+    boolean verifyDisplay(World world, DisplayRecord record) {
+        // Already removed since the sweeper took its snapshot, e.g. along with the rest of its cuboid
+        if (displayIndex.get(record.worldId, record.blockKey) != record) {
+            return false;
+        }
+        
+        Material type = world.getBlockAt(record.x(), record.y(), record.z()).getType();
+        // A piston is still moving the support here, it is checked again once the push completes
+        if (type == Material.MOVING_PISTON) {
+            return false;
+        }
+        if (record.material == null) {
+            captureMaterial(world, record, type);
+        }
+        
+        // Check if block is no longer solid or changed type
+        if (!type.isSolid() || type != record.material) {
+            removeDisplay(record);
+            return true;
+        }
+        
+        Entity entity = record.mesh != null ? world.getEntity(record.mesh.entityId) : null;
+        if (entity instanceof BlockDisplay) {
+            return false;
+        }
+        if (record.mesh == null) {
+            // Wait for the chunk's entities, the saved entity for this display is adopted when they load
+            if (!world.getChunkAt(record.x() >> 4, record.z() >> 4).isEntitiesLoaded()) {
+                return false;
+            }
+            // Entities are loaded but the load event hasn't materialized the display yet
+            spawnMesh(world, DisplayMesh.single(record));
+            ChunkBucket bucket = displayIndex.bucket(record.worldId, BlockKey.chunkKeyOf(record.blockKey));
+            if (bucket != null) {
+                markForRemesh(bucket);
+            }
+            return false;
+        }
+        // Entity was removed by something else, taking every display it rendered with it
+        removeMesh(world, record.mesh);
+        return true;
     }
-} 
\ No newline at end of file
+}
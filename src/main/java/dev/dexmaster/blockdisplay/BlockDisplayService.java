@@ -0,0 +1,40 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.util.BoundingBox;
+
+// Entry point for other plugins, registered in Bukkit's ServicesManager:
+//
+//   BlockDisplayService displays = getServer().getServicesManager().load(BlockDisplayService.class);
+//
+// Every method may be called from any thread. Work is grouped by chunk and applied on the
+// region owning each chunk under the plugin's per-tick budget, so large batches spread over
+// several ticks. Futures complete on a server thread once everything has been applied, and
+// each call that changed something fires a single DisplayBatchEvent.
+public interface BlockDisplayService {
+
+    // Spawns displays with a template (null for the default) and its glow color. An unknown
+    // template fails the future with IllegalArgumentException.
+    // Blocks that can't host a display or already have one are skipped; completes with the number spawned.
+    CompletableFuture<Integer> spawnAll(Collection<Block> blocks, String template);
+
+    // Same with an explicit 0xRRGGBB glow color
+    CompletableFuture<Integer> spawnAll(Collection<Block> blocks, String template, int glowColor);
+
+    // Completes with the number of displays removed
+    CompletableFuture<Integer> removeAll(Collection<Block> blocks);
+
+    // Completes with the number of displays whose color changed
+    CompletableFuture<Integer> recolorAll(Collection<Block> blocks, int glowColor);
+
+    // Displays whose support block lies inside the box, read from the chunks it covers
+    CompletableFuture<List<DisplayInfo>> query(World world, BoundingBox box);
+
+    // 0xRRGGBB value of a chat color name or #rrggbb
+    int parseColor(String color) throws IllegalArgumentException;
+}
@@ -3,6 +3,7 @@ package dev.dexmaster.blockdisplay;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
@@ -10,12 +11,14 @@ import org.bukkit.command.TabCompleter;
 
 public class BlockDisplayTabCompleter implements TabCompleter {
     
-    private static final List<String> VALID_COLORS = Arrays.asList(
-        "black", "dark_blue", "dark_green", "dark_aqua", "dark_red", "dark_purple",
-        "gold", "gray", "dark_gray", "blue", "green", "aqua", "red", "light_purple", "yellow", "white"
-    );
+    private static final List<String> SUBCOMMANDS = Arrays.asList("spawn", "fill", "near", "clear", "recolor", "visibility", "quota", "stats", "reload");
+    private static final List<String> VISIBILITY = Arrays.asList("public", "private", "group");
     
-    private static final List<String> SUBCOMMANDS = Arrays.asList("spawn", "reload");
+    private final BlockDisplayPlugin plugin;
+    
+    public BlockDisplayTabCompleter(BlockDisplayPlugin plugin) {
+        this.plugin = plugin;
+    }
     
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
@@ -28,15 +31,72 @@ public class BlockDisplayTabCompleter implements TabCompleter {
                     completions.add(subcommand);
                 }
             }
-        } else if (args.length == 2 && args[0].equalsIgnoreCase("spawn")) {
-            // Second argument for spawn command - suggest colors
-            for (String color : VALID_COLORS) {
-                if (color.startsWith(args[1].toLowerCase())) {
-                    completions.add(color);
+        } else if (args[0].equalsIgnoreCase("spawn")) {
+            // Template or color, then a color after a template
+            completeLook(args, 1, completions);
+        } else if (args[0].equalsIgnoreCase("fill")) {
+            if (args.length == 2 && "cancel".startsWith(args[1].toLowerCase())) {
+                completions.add("cancel");
+            }
+            if (args.length >= 2 && args.length <= 7 && args[args.length - 1].isEmpty()) {
+                // Coordinates - suggest relative to the player
+                completions.add("~");
+            } else if (args.length >= 8) {
+                // Optional template and color after the two corners
+                completeLook(args, 7, completions);
+            }
+        } else if (args[0].equalsIgnoreCase("visibility")) {
+            List<String> options = args.length == 2 ? VISIBILITY
+                    : args.length == 3 && args[1].equalsIgnoreCase("group") ? plugin.visibilityGroups() : List.of();
+            for (String option : options) {
+                if (option.startsWith(args[args.length - 1].toLowerCase(Locale.ROOT))) {
+                    completions.add(option);
+                }
+            }
+        } else if (args[0].equalsIgnoreCase("quota") && sender.hasPermission("bd.admin")) {
+            List<String> options = args.length == 2 ? List.of("reset")
+                    : args.length == 3 && args[1].equalsIgnoreCase("reset") ? List.of("player", "world") : List.of();
+            for (String option : options) {
+                if (option.startsWith(args[args.length - 1].toLowerCase(Locale.ROOT))) {
+                    completions.add(option);
+                }
+            }
+        } else if (args[0].equalsIgnoreCase("near") || args[0].equalsIgnoreCase("clear") || args[0].equalsIgnoreCase("recolor")) {
+            boolean recolor = args[0].equalsIgnoreCase("recolor");
+            if (args.length == 2 && "cancel".startsWith(args[1].toLowerCase())) {
+                completions.add("cancel");
+            }
+            if (recolor && args.length == 2) {
+                for (String color : DisplayColors.NAMES) {
+                    if (color.startsWith(args[1].toLowerCase())) {
+                        completions.add(color);
+                    }
                 }
+            } else if (args.length > (recolor ? 3 : 2) && args.length <= (recolor ? 8 : 7) && args[args.length - 1].isEmpty()) {
+                // Selection corners after a first coordinate, relative to the player
+                completions.add("~");
             }
         }
         
         return completions;
     }
-} 
\ No newline at end of file
+    
+    private void completeLook(String[] args, int from, List<String> completions) {
+        int position = args.length - 1 - from;
+        String prefix = args[args.length - 1].toLowerCase(Locale.ROOT);
+        if (position == 0) {
+            for (String template : plugin.templateNames()) {
+                if (template.startsWith(prefix)) {
+                    completions.add(template);
+                }
+            }
+        }
+        if (position == 0 || (position == 1 && plugin.templateNames().contains(args[from].toLowerCase(Locale.ROOT)))) {
+            for (String color : DisplayColors.NAMES) {
+                if (color.startsWith(prefix)) {
+                    completions.add(color);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package dev.dexmaster.blockdisplay;
+
+// Packs block coordinates into a single long (same layout as vanilla BlockPos#asLong)
+// so lookups never need to allocate a Location
+public final class BlockKey {
+
+    private static final int XZ_BITS = 26;
+    private static final int Y_BITS = 12;
+    private static final long XZ_MASK = (1L << XZ_BITS) - 1L;
+    private static final long Y_MASK = (1L << Y_BITS) - 1L;
+    private static final int X_SHIFT = Y_BITS + XZ_BITS;
+    private static final int Z_SHIFT = Y_BITS;
+
+    private BlockKey() {
+    }
+
+    public static long pack(int x, int y, int z) {
+        return ((x & XZ_MASK) << X_SHIFT) | ((z & XZ_MASK) << Z_SHIFT) | (y & Y_MASK);
+    }
+
+    public static int x(long key) {
+        return (int) (key >> X_SHIFT);
+    }
+
+    public static int y(long key) {
+        return (int) (key << (64 - Y_BITS) >> (64 - Y_BITS));
+    }
+
+    public static int z(long key) {
+        return (int) (key << (64 - X_SHIFT) >> (64 - XZ_BITS));
+    }
+
+    // Same layout as Paper's Chunk#getChunkKey
+    public static long chunkKey(int chunkX, int chunkZ) {
+        return (chunkX & 0xFFFFFFFFL) | ((chunkZ & 0xFFFFFFFFL) << 32);
+    }
+
+    public static long chunkKeyOf(long blockKey) {
+        return chunkKey(x(blockKey) >> 4, z(blockKey) >> 4);
+    }
+
+    public static int chunkX(long chunkKey) {
+        return (int) chunkKey;
+    }
+
+    public static int chunkZ(long chunkKey) {
+        return (int) (chunkKey >> 32);
+    }
+}
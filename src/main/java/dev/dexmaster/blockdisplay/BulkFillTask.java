@@ -0,0 +1,222 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.UUID;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+
+// Streams a cuboid selection chunk column by chunk column, running the same support
+// checks as /bd spawn and spawning under a per-tick time and spawn budget. Each tick runs
+// on the region owning the current column, hopping regions as the cursor moves.
+final class BulkFillTask implements Runnable {
+
+    private final BlockDisplayPlugin plugin;
+    private final UUID playerId;
+    private final World world;
+    private final DisplayTemplate template;
+    private final int glowColor;
+    private final String audience;
+    private final boolean bypassQuota;
+    private final long budgetNanos;
+    private final int maxSpawnsPerTick;
+    private final int progressIntervalTicks;
+
+    private final int minX, minY, minZ, maxX, maxY, maxZ;
+    private final int minChunkX, minChunkZ, maxChunkZ;
+    private final long volume;
+
+    // Cursor: current chunk column and position inside its part of the selection
+    private int chunkX, chunkZ;
+    private int x0, z0, width, depth, height;
+    private long columnVolume;
+    private long columnPos;
+
+    private long scanned;
+    private int spawned;
+    private int existing;
+    private int rejected;
+    private int unloaded;
+    private int overQuota;
+    private int ticks;
+    private volatile ScheduledTask task;
+    private volatile boolean finished;
+
+    BulkFillTask(BlockDisplayPlugin plugin, UUID playerId, World world,
+                 int x1, int y1, int z1, int x2, int y2, int z2, DisplayTemplate template, int glowColor,
+                 String audience, boolean bypassQuota, long budgetMicros, int maxSpawnsPerTick, int progressIntervalTicks) {
+        this.plugin = plugin;
+        this.playerId = playerId;
+        this.world = world;
+        this.template = template;
+        this.glowColor = glowColor;
+        this.audience = audience;
+        this.bypassQuota = bypassQuota;
+        this.budgetNanos = Math.max(1L, budgetMicros) * 1000L;
+        this.maxSpawnsPerTick = maxSpawnsPerTick;
+        this.progressIntervalTicks = progressIntervalTicks;
+
+        this.minX = Math.min(x1, x2);
+        this.minZ = Math.min(z1, z2);
+        this.maxX = Math.max(x1, x2);
+        this.maxZ = Math.max(z1, z2);
+        this.minY = Math.max(Math.min(y1, y2), world.getMinHeight());
+        this.maxY = Math.min(Math.max(y1, y2), world.getMaxHeight() - 1);
+        this.volume = (long) (maxX - minX + 1) * Math.max(0, maxY - minY + 1) * (maxZ - minZ + 1);
+
+        this.minChunkX = minX >> 4;
+        this.minChunkZ = minZ >> 4;
+        this.maxChunkZ = maxZ >> 4;
+        this.chunkX = minChunkX;
+        this.chunkZ = minChunkZ;
+    }
+
+    void start() {
+        if (startColumn()) {
+            schedule();
+        } else {
+            finishComplete();
+        }
+    }
+
+    private void schedule() {
+        task = plugin.getServer().getRegionScheduler().runDelayed(plugin, world, chunkX, chunkZ, t -> run(), 1L);
+    }
+
+    void cancel() {
+        finish(Component.text("Fill cancelled after " + spawned + " displays (" + percent() + "% scanned).", NamedTextColor.YELLOW));
+    }
+
+    @Override
+    public void run() {
+        if (finished) {
+            return;
+        }
+        long deadline = System.nanoTime() + budgetNanos;
+        int spawnedThisTick = 0;
+        int steps = 0;
+
+        while (spawnedThisTick < maxSpawnsPerTick) {
+            if (columnPos >= columnVolume) {
+                nextColumn();
+                if (!startColumn()) {
+                    finishComplete();
+                    return;
+                }
+                // The next column belongs to another region, continue there next tick
+                if (!plugin.getServer().isOwnedByCurrentRegion(world, chunkX, chunkZ)) {
+                    break;
+                }
+                continue;
+            }
+
+            // y innermost so a column is walked bottom to top
+            long pos = columnPos++;
+            int y = minY + (int) (pos % height);
+            long rest = pos / height;
+            int x = x0 + (int) (rest % width);
+            int z = z0 + (int) (rest / width);
+            scanned++;
+
+            Block block = world.getBlockAt(x, y, z);
+            if (!block.getType().isAir()) {
+                if (plugin.checkSupportBlock(block) != null) {
+                    rejected++;
+                } else if (plugin.hasDisplayAt(block)) {
+                    existing++;
+                } else {
+                    DisplayQuotas.Full full = plugin.admitDisplay(block, playerId, bypassQuota);
+                    if (full == DisplayQuotas.Full.CHUNK) {
+                        // The rest of this chunk's column can't take any more either
+                        overQuota++;
+                        columnPos = columnVolume;
+                    } else if (full != null) {
+                        finish(Component.text(plugin.describeQuota(full, world) + ", fill stopped after " + spawned
+                                + " displays.", NamedTextColor.YELLOW));
+                        return;
+                    } else {
+                        plugin.spawnAt(block, template, glowColor, audience, playerId);
+                        spawned++;
+                        spawnedThisTick++;
+                    }
+                }
+            }
+
+            if ((++steps & 63) == 0 && System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+
+        if (++ticks % progressIntervalTicks == 0) {
+            Player player = plugin.getServer().getPlayer(playerId);
+            if (player != null) {
+                player.sendActionBar(Component.text("Fill " + percent() + "%: " + spawned + " displays spawned", NamedTextColor.AQUA));
+            }
+        }
+        if (!finished) {
+            schedule();
+        }
+    }
+
+    // Prepares the part of the selection inside the current chunk column; false when done
+    private boolean startColumn() {
+        while (chunkX <= (maxX >> 4)) {
+            x0 = Math.max(minX, chunkX << 4);
+            z0 = Math.max(minZ, chunkZ << 4);
+            width = Math.min(maxX, (chunkX << 4) + 15) - x0 + 1;
+            depth = Math.min(maxZ, (chunkZ << 4) + 15) - z0 + 1;
+            height = maxY - minY + 1;
+            columnVolume = height > 0 ? (long) width * depth * height : 0L;
+            columnPos = 0L;
+
+            // Never load chunks for a fill, just report what was skipped
+            if (columnVolume > 0 && !world.isChunkLoaded(chunkX, chunkZ)) {
+                unloaded += (int) Math.min(Integer.MAX_VALUE, columnVolume);
+                scanned += columnVolume;
+                nextColumn();
+                continue;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private void nextColumn() {
+        if (++chunkZ > maxChunkZ) {
+            chunkZ = minChunkZ;
+            chunkX++;
+        }
+    }
+
+    private long percent() {
+        return volume > 0 ? Math.min(100L, scanned * 100L / volume) : 100L;
+    }
+
+    private void finishComplete() {
+        finish(Component.text("Fill complete: " + spawned + " displays spawned, " + existing + " already present, "
+                + rejected + " blocks can't host a display" + (unloaded > 0 ? ", " + unloaded + " skipped in unloaded chunks" : "")
+                + (overQuota > 0 ? ", " + overQuota + " chunks full" : "") + ".", NamedTextColor.GREEN));
+    }
+
+    // Called from the fill's own region or from /bd fill cancel on another thread
+    private synchronized void finish(Component message) {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        ScheduledTask pending = task;
+        if (pending != null) {
+            pending.cancel();
+        }
+        plugin.fillFinished(playerId, this);
+        Player player = plugin.getServer().getPlayer(playerId);
+        if (player != null) {
+            player.sendMessage(message);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+// All tracked displays whose support block lies in one chunk. The record map is only read and
+// written under the index stripe lock it was created with; the occupancy bits need no lock.
+public final class ChunkBucket {
+
+    final UUID worldId;
+    final long chunkKey;
+    final LongKeyMap<DisplayRecord> records = new LongKeyMap<>();
+    // Kept in sync with records by the index
+    final OccupancyMask occupancy = new OccupancyMask();
+    private final Object lock;
+
+    // Scheduling flags owned by the failsafe sweeper
+    boolean queued;
+    boolean touched;
+    boolean resumeQueued;
+    // Record map slot the failsafe sweep continues from, owned by the chunk's region
+    int sweepSlot;
+
+    // Scheduling state owned by the remesh queue
+    boolean remeshQueued;
+    long lastChangeTick;
+
+    // Level of detail, owned by the chunk's region
+    int entities;
+    int lodTier;
+    boolean lodQueued;
+
+    // Animated entities, owned by the chunk's region; the booking flag is owned by the animation engine
+    int animated;
+    boolean animationQueued;
+
+    ChunkBucket(UUID worldId, long chunkKey, Object lock) {
+        this.worldId = worldId;
+        this.chunkKey = chunkKey;
+        this.lock = lock;
+    }
+
+    public UUID worldId() {
+        return worldId;
+    }
+
+    public long chunkKey() {
+        return chunkKey;
+    }
+
+    public int chunkX() {
+        return BlockKey.chunkX(chunkKey);
+    }
+
+    public int chunkZ() {
+        return BlockKey.chunkZ(chunkKey);
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return records.size();
+        }
+    }
+
+    public boolean isEmpty() {
+        synchronized (lock) {
+            return records.isEmpty();
+        }
+    }
+
+    public boolean isOccupied(int x, int y, int z) {
+        return occupancy.get(x, y, z);
+    }
+
+    public DisplayRecord get(long blockKey) {
+        synchronized (lock) {
+            return records.get(blockKey);
+        }
+    }
+
+    // Runs over a snapshot, outside the lock, so the action may change the index
+    public void forEach(Consumer<DisplayRecord> action) {
+        for (DisplayRecord record : snapshot()) {
+            action.accept(record);
+        }
+    }
+
+    // Copies up to max records from the given map slot on; returns the slot to continue from, or -1
+    // at the end of the map (see LongKeyMap.forEachFrom)
+    int slice(int fromSlot, int max, List<DisplayRecord> into) {
+        synchronized (lock) {
+            return records.forEachFrom(fromSlot, max, (key, record) -> into.add(record));
+        }
+    }
+
+    public DisplayRecord[] snapshot() {
+        synchronized (lock) {
+            DisplayRecord[] snapshot = new DisplayRecord[records.size()];
+            int[] i = {0};
+            records.forEach((key, record) -> snapshot[i[0]++] = record);
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.bukkit.Color;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.BlockDisplay;
+import org.bukkit.util.Transformation;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
+// Keyframed animation of a template, compiled once from config.yml. The phase comes from the engine's
+// tick, so every display of a template animates in step. A keyframe is one metadata update per
+// entity: pulse and cycle swap the glow color, breathe sets the next scale and lets the client
+// interpolate towards it over the whole keyframe.
+record DisplayAnimation(Mode mode, int intervalTicks, List<Integer> colors, float dim, float scale) {
+
+    enum Mode { PULSE, CYCLE, BREATHE }
+
+    // Throws IllegalArgumentException naming the bad setting
+    static DisplayAnimation load(ConfigurationSection section) {
+        Mode mode;
+        try {
+            mode = Mode.valueOf(section.getString("mode", "pulse").toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("animation mode must be pulse, cycle or breathe");
+        }
+        List<Integer> colors = new ArrayList<>();
+        for (String color : section.getStringList("colors")) {
+            colors.add(DisplayColors.parse(color));
+        }
+        if (mode == Mode.CYCLE && colors.size() < 2) {
+            throw new IllegalArgumentException("a color cycle needs at least two colors");
+        }
+        // Pulse and breathe have two keyframes per period, a cycle one per color
+        int keyframes = mode == Mode.CYCLE ? colors.size() : 2;
+        int period = section.getInt("period-ticks", 40);
+        float dim = (float) section.getDouble("dim", 0.25);
+        float scale = (float) section.getDouble("scale", 1.25);
+        if (period < keyframes || dim < 0f || dim > 1f || scale <= 0f) {
+            throw new IllegalArgumentException("animation needs period-ticks of at least " + keyframes
+                    + ", dim between 0 and 1 and a positive scale");
+        }
+        return new DisplayAnimation(mode, period / keyframes, List.copyOf(colors), dim, scale);
+    }
+
+    long keyframe(long tick) {
+        return tick / intervalTicks;
+    }
+
+    // First tick of the keyframe after the one running at tick
+    long nextKeyframeTick(long tick) {
+        return (keyframe(tick) + 1) * intervalTicks;
+    }
+
+    void apply(BlockDisplay display, DisplayMesh mesh, long keyframe) {
+        DisplayRecord first = mesh.template();
+        switch (mode) {
+            case PULSE -> display.setGlowColorOverride(Color.fromRGB(keyframe % 2 == 0 ? first.glowColor : dimmed(first.glowColor)));
+            case CYCLE -> display.setGlowColorOverride(Color.fromRGB(colors.get((int) (keyframe % colors.size()))));
+            case BREATHE -> {
+                // Grows around the cuboid's center on even keyframes and shrinks back on odd ones
+                float factor = keyframe % 2 == 0 ? scale : 1f;
+                float base = first.template.scale;
+                float sizeX = mesh.sizeX * base, sizeY = mesh.sizeY * base, sizeZ = mesh.sizeZ * base;
+                display.setInterpolationDelay(0);
+                display.setInterpolationDuration(intervalTicks);
+                display.setTransformation(new Transformation(
+                        new Vector3f(sizeX * (1f - factor) / 2f, sizeY * (1f - factor) / 2f, sizeZ * (1f - factor) / 2f),
+                        new Quaternionf(), new Vector3f(sizeX * factor, sizeY * factor, sizeZ * factor), new Quaternionf()));
+            }
+        }
+    }
+
+    private int dimmed(int rgb) {
+        int r = (int) (((rgb >> 16) & 0xFF) * dim);
+        int g = (int) (((rgb >> 8) & 0xFF) * dim);
+        int b = (int) ((rgb & 0xFF) * dim);
+        return (r << 16) | (g << 8) | b;
+    }
+}
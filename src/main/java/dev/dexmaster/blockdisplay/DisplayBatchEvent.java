@@ -0,0 +1,46 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.List;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+// Fired once per BlockDisplayService call that changed displays, after all of them were applied,
+// on the server thread that finished the batch
+public class DisplayBatchEvent extends Event {
+
+    public enum Action { SPAWN, REMOVE, RECOLOR }
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final Action action;
+    private final List<DisplayInfo> displays;
+
+    DisplayBatchEvent(Action action, List<DisplayInfo> displays) {
+        this.action = action;
+        this.displays = displays;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    // State of the affected displays right after the batch; removed ones as they were before removal
+    public List<DisplayInfo> getDisplays() {
+        return displays;
+    }
+
+    // Checked when a batch finishes, so listeners registered mid-batch still get the event
+    static boolean hasListeners() {
+        return HANDLERS.getRegisteredListeners().length > 0;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
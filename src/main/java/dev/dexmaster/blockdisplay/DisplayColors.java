@@ -0,0 +1,69 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import net.kyori.adventure.text.format.NamedTextColor;
+
+// Glow colors are packed 0xRRGGBB ints. Input accepts the 16 chat color names and #rrggbb;
+// output keeps the names for those 16 so files stay readable, and hex for everything else.
+final class DisplayColors {
+
+    private static final NamedTextColor[] NAMED = {
+        NamedTextColor.BLACK, NamedTextColor.DARK_BLUE, NamedTextColor.DARK_GREEN,
+        NamedTextColor.DARK_AQUA, NamedTextColor.DARK_RED, NamedTextColor.DARK_PURPLE,
+        NamedTextColor.GOLD, NamedTextColor.GRAY, NamedTextColor.DARK_GRAY,
+        NamedTextColor.BLUE, NamedTextColor.GREEN, NamedTextColor.AQUA,
+        NamedTextColor.RED, NamedTextColor.LIGHT_PURPLE, NamedTextColor.YELLOW, NamedTextColor.WHITE
+    };
+
+    static final List<String> NAMES;
+    private static final Map<String, Integer> BY_NAME = new HashMap<>();
+    private static final int[] VALUES = new int[NAMED.length];
+
+    static {
+        List<String> names = new ArrayList<>(NAMED.length);
+        for (int i = 0; i < NAMED.length; i++) {
+            String name = NAMED[i].toString().toLowerCase(Locale.ROOT);
+            names.add(name);
+            BY_NAME.put(name, NAMED[i].value());
+            VALUES[i] = NAMED[i].value();
+        }
+        NAMES = Collections.unmodifiableList(names);
+    }
+
+    private DisplayColors() {
+    }
+
+    static int parse(String input) throws IllegalArgumentException {
+        if (input.length() == 7 && input.charAt(0) == '#') {
+            int rgb = 0;
+            for (int i = 1; i < 7; i++) {
+                int digit = Character.digit(input.charAt(i), 16);
+                if (digit < 0) {
+                    throw new IllegalArgumentException("Invalid color: " + input);
+                }
+                rgb = (rgb << 4) | digit;
+            }
+            return rgb;
+        }
+        Integer rgb = BY_NAME.get(input.toLowerCase(Locale.ROOT));
+        if (rgb == null) {
+            throw new IllegalArgumentException("Invalid color: " + input);
+        }
+        return rgb;
+    }
+
+    static String format(int rgb) {
+        for (int i = 0; i < VALUES.length; i++) {
+            if (VALUES[i] == rgb) {
+                return NAMES.get(i);
+            }
+        }
+        return String.format("#%06x", rgb);
+    }
+}
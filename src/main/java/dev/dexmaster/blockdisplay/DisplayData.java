@@ -0,0 +1,20 @@
+package dev.dexmaster.blockdisplay;
+
+// Data class for JSON serialization
+class DisplayData {
+    public String world;
+    public int x;
+    public int y;
+    public int z;
+    public String glowColor;
+    public String material;
+    // Template name, null for the default template
+    public String template;
+    // Owner or group key, null when everyone can see it
+    public String audience;
+    // UUID of the player who spawned it, null for displays from the API or older versions
+    public String owner;
+    public double offsetX;
+    public double offsetY;
+    public double offsetZ;
+}
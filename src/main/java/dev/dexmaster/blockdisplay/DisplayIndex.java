@@ -0,0 +1,343 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ToLongFunction;
+
+// Display store: world -> region partition -> chunk key -> packed support block key -> record.
+// Holds every display of the chunks loaded so far, materialized or not; the rest of a read
+// region waits outside the index until its chunk loads. Partitions are striped
+// by storage region and locked individually, so region threads only contend on a shared stripe;
+// a bucket's record map is read and written under its stripe lock only.
+// Misses never lock: the last world looked up is cached, a per-world table of chunk slots says
+// whether a chunk can have displays at all, chunk maps are published as copies on change and
+// the occupancy bits are read through volatile words.
+public final class DisplayIndex {
+
+    private static final int STRIPES = 64;
+    private static final int CHUNK_SLOTS = 1 << 15;
+
+    private final ConcurrentHashMap<UUID, WorldIndex> worlds = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final ConcurrentHashMap<UUID, AtomicInteger> worldSizes = new ConcurrentHashMap<>();
+    private volatile WorldIndex lastWorld;
+
+    private static final class WorldIndex {
+        final UUID worldId;
+        final Partition[] partitions = new Partition[STRIPES];
+        // Buckets per hashed chunk key; a zero slot means none of its chunks has displays
+        final AtomicIntegerArray chunkSlots = new AtomicIntegerArray(CHUNK_SLOTS);
+
+        WorldIndex(UUID worldId) {
+            this.worldId = worldId;
+            for (int i = 0; i < STRIPES; i++) {
+                partitions[i] = new Partition();
+            }
+        }
+
+        boolean mayHave(long chunkKey) {
+            return chunkSlots.get(slot(chunkKey)) != 0;
+        }
+    }
+
+    private static final class Partition {
+        // Written under the partition lock; readers use the copy published after each change
+        final LongKeyMap<ChunkBucket> chunks = new LongKeyMap<>();
+        volatile LongKeyMap<ChunkBucket> published = new LongKeyMap<>();
+        boolean changed;
+        // Regions whose stored displays have been read, under the lock and as a published copy
+        final LongKeyMap<StoredRegion> regions = new LongKeyMap<>();
+        volatile LongKeyMap<StoredRegion> readRegions = new LongKeyMap<>();
+
+        void publish() {
+            if (changed) {
+                published = chunks.copy();
+                changed = false;
+            }
+        }
+    }
+
+    // Stored displays of a read region whose chunks haven't loaded them yet
+    private static final class StoredRegion {
+        // Under the partition lock
+        final LongKeyMap<List<DisplayRecord>> chunks = new LongKeyMap<>();
+        // One bit per chunk of the region still waiting in chunks, readable without the lock
+        final AtomicLongArray pending = new AtomicLongArray(1 << (2 * RegionShard.REGION_SHIFT - 6));
+
+        boolean isPending(int chunkX, int chunkZ) {
+            int i = bit(chunkX, chunkZ);
+            return (pending.get(i >>> 6) & (1L << i)) != 0;
+        }
+
+        void setPending(int chunkX, int chunkZ, boolean waiting) {
+            int i = bit(chunkX, chunkZ);
+            long word = pending.get(i >>> 6);
+            pending.set(i >>> 6, waiting ? word | 1L << i : word & ~(1L << i));
+        }
+
+        private static int bit(int chunkX, int chunkZ) {
+            int mask = (1 << RegionShard.REGION_SHIFT) - 1;
+            return ((chunkZ & mask) << RegionShard.REGION_SHIFT) | (chunkX & mask);
+        }
+    }
+
+    public DisplayRecord get(UUID worldId, long blockKey) {
+        return get(worldId, BlockKey.x(blockKey), BlockKey.y(blockKey), BlockKey.z(blockKey));
+    }
+
+    public DisplayRecord get(UUID worldId, int x, int y, int z) {
+        // Occupancy bit first, most lookups come from block events that miss
+        ChunkBucket bucket = bucket(worldId, BlockKey.chunkKey(x >> 4, z >> 4));
+        return bucket != null && bucket.isOccupied(x, y, z) ? bucket.get(BlockKey.pack(x, y, z)) : null;
+    }
+
+    public boolean contains(UUID worldId, int x, int y, int z) {
+        return get(worldId, x, y, z) != null;
+    }
+
+    // Displays on any of the blocks, or null if there are none. Intersects the list with chunk
+    // occupancy and reuses the bucket while consecutive blocks stay in one chunk.
+    public <T> List<DisplayRecord> collect(UUID worldId, List<T> blocks, ToLongFunction<T> blockKey) {
+        WorldIndex world = world(worldId);
+        if (world == null) {
+            return null;
+        }
+        List<DisplayRecord> hits = null;
+        ChunkBucket bucket = null;
+        long bucketKey = 0L;
+        boolean looked = false;
+
+        for (T block : blocks) {
+            long key = blockKey.applyAsLong(block);
+            long chunkKey = BlockKey.chunkKeyOf(key);
+            if (!looked || chunkKey != bucketKey) {
+                bucket = bucket(world, chunkKey);
+                bucketKey = chunkKey;
+                looked = true;
+            }
+            if (bucket == null || !bucket.isOccupied(BlockKey.x(key), BlockKey.y(key), BlockKey.z(key))) {
+                continue;
+            }
+            DisplayRecord record = bucket.get(key);
+            if (record != null) {
+                if (hits == null) {
+                    hits = new ArrayList<>();
+                }
+                hits.add(record);
+            }
+        }
+        return hits;
+    }
+
+    public ChunkBucket bucket(UUID worldId, long chunkKey) {
+        WorldIndex world = world(worldId);
+        return world != null ? bucket(world, chunkKey) : null;
+    }
+
+    public ChunkBucket bucket(UUID worldId, int chunkX, int chunkZ) {
+        return bucket(worldId, BlockKey.chunkKey(chunkX, chunkZ));
+    }
+
+    private static ChunkBucket bucket(WorldIndex world, long chunkKey) {
+        if (!world.mayHave(chunkKey)) {
+            return null;
+        }
+        return partition(world, chunkKey).published.get(chunkKey);
+    }
+
+    // Returns the bucket the record was placed in
+    public ChunkBucket put(DisplayRecord record) {
+        WorldIndex world = world(record.worldId, true);
+        Partition partition = partition(world, BlockKey.chunkKeyOf(record.blockKey));
+        synchronized (partition) {
+            ChunkBucket bucket = put(world, partition, record);
+            partition.publish();
+            return bucket;
+        }
+    }
+
+    private ChunkBucket put(WorldIndex world, Partition partition, DisplayRecord record) {
+        long chunkKey = BlockKey.chunkKeyOf(record.blockKey);
+        ChunkBucket bucket = partition.chunks.get(chunkKey);
+        if (bucket == null) {
+            bucket = new ChunkBucket(record.worldId, chunkKey, partition);
+            partition.chunks.put(chunkKey, bucket);
+            partition.changed = true;
+            world.chunkSlots.incrementAndGet(slot(chunkKey));
+        }
+        if (bucket.records.put(record.blockKey, record) == null) {
+            bucket.occupancy.set(record.x(), record.y(), record.z());
+            size.incrementAndGet();
+            worldSizes.computeIfAbsent(record.worldId, id -> new AtomicInteger()).incrementAndGet();
+        }
+        return bucket;
+    }
+
+    // Only drops the mapping if it still points at the given record
+    public boolean remove(DisplayRecord record) {
+        long chunkKey = BlockKey.chunkKeyOf(record.blockKey);
+        WorldIndex world = world(record.worldId);
+        if (world == null) {
+            return false;
+        }
+        Partition partition = partition(world, chunkKey);
+        synchronized (partition) {
+            ChunkBucket bucket = partition.chunks.get(chunkKey);
+            if (bucket == null || bucket.records.get(record.blockKey) != record) {
+                return false;
+            }
+            bucket.occupancy.clear(record.x(), record.y(), record.z());
+            bucket.records.remove(record.blockKey);
+            size.decrementAndGet();
+            worldSizes.get(record.worldId).decrementAndGet();
+            if (bucket.records.isEmpty()) {
+                partition.chunks.remove(chunkKey);
+                partition.changed = true;
+                partition.publish();
+                world.chunkSlots.decrementAndGet(slot(chunkKey));
+            }
+            return true;
+        }
+    }
+
+    // True once the region's stored displays were handed to the index; takes no lock
+    public boolean isRegionRead(UUID worldId, long regionKey) {
+        WorldIndex world = world(worldId);
+        return world != null && world.partitions[stripe(regionKey)].readRegions.get(regionKey) != null;
+    }
+
+    // True once the chunk's stored displays are in the index; takes no lock
+    public boolean isChunkLoaded(UUID worldId, int chunkX, int chunkZ) {
+        WorldIndex world = world(worldId);
+        if (world == null) {
+            return false;
+        }
+        long regionKey = RegionShard.regionKeyOfChunk(chunkX, chunkZ);
+        StoredRegion region = world.partitions[stripe(regionKey)].readRegions.get(regionKey);
+        return region != null && !region.isPending(chunkX, chunkZ);
+    }
+
+    // Keeps a region's stored displays until each of its chunks asks for them; only the first
+    // read of a region is taken
+    public void addRegion(UUID worldId, long regionKey, List<DisplayRecord> records) {
+        WorldIndex world = world(worldId, true);
+        Partition partition = world.partitions[stripe(regionKey)];
+        synchronized (partition) {
+            if (partition.regions.get(regionKey) != null) {
+                return;
+            }
+            StoredRegion region = new StoredRegion();
+            for (DisplayRecord record : records) {
+                long chunkKey = BlockKey.chunkKeyOf(record.blockKey);
+                List<DisplayRecord> chunk = region.chunks.get(chunkKey);
+                if (chunk == null) {
+                    chunk = new ArrayList<>();
+                    region.chunks.put(chunkKey, chunk);
+                    region.setPending(BlockKey.chunkX(chunkKey), BlockKey.chunkZ(chunkKey), true);
+                }
+                chunk.add(record);
+            }
+            partition.regions.put(regionKey, region);
+            partition.readRegions = partition.regions.copy();
+        }
+    }
+
+    // Moves the chunk's stored displays into the index, on the thread owning the chunk, so no
+    // region publishes buckets of chunks it doesn't own. Displays already tracked on the same
+    // block are newer and stay. Returns the bucket that received displays, or null.
+    public ChunkBucket loadChunk(UUID worldId, int chunkX, int chunkZ) {
+        WorldIndex world = world(worldId);
+        if (world == null) {
+            return null;
+        }
+        long regionKey = RegionShard.regionKeyOfChunk(chunkX, chunkZ);
+        Partition partition = world.partitions[stripe(regionKey)];
+        synchronized (partition) {
+            StoredRegion region = partition.regions.get(regionKey);
+            List<DisplayRecord> records = region != null ? region.chunks.remove(BlockKey.chunkKey(chunkX, chunkZ)) : null;
+            if (records == null) {
+                return null;
+            }
+            ChunkBucket bucket = null;
+            for (DisplayRecord record : records) {
+                ChunkBucket existing = partition.chunks.get(BlockKey.chunkKeyOf(record.blockKey));
+                if (existing == null || existing.records.get(record.blockKey) == null) {
+                    bucket = put(world, partition, record);
+                }
+            }
+            partition.publish();
+            // Cleared after publishing, so a reader that sees the chunk loaded also sees its bucket
+            region.setPending(chunkX, chunkZ, false);
+            return bucket;
+        }
+    }
+
+    // Snapshot of every bucket, taken one partition at a time
+    public List<ChunkBucket> buckets() {
+        List<ChunkBucket> buckets = new ArrayList<>();
+        for (WorldIndex world : worlds.values()) {
+            for (Partition partition : world.partitions) {
+                partition.published.forEach((key, bucket) -> buckets.add(bucket));
+            }
+        }
+        return buckets;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public int size(UUID worldId) {
+        AtomicInteger worldSize = worldSizes.get(worldId);
+        return worldSize != null ? worldSize.get() : 0;
+    }
+
+    public Collection<UUID> worldIds() {
+        return worldSizes.keySet();
+    }
+
+    public void clear() {
+        worlds.clear();
+        lastWorld = null;
+        worldSizes.clear();
+        size.set(0);
+    }
+
+    // Most lookups in a row are for the same world, so the last one is kept
+    private WorldIndex world(UUID worldId) {
+        WorldIndex world = lastWorld;
+        if (world != null && world.worldId.equals(worldId)) {
+            return world;
+        }
+        world = worlds.get(worldId);
+        if (world != null) {
+            lastWorld = world;
+        }
+        return world;
+    }
+
+    private WorldIndex world(UUID worldId, boolean create) {
+        WorldIndex world = world(worldId);
+        return world != null || !create ? world : worlds.computeIfAbsent(worldId, WorldIndex::new);
+    }
+
+    private static Partition partition(WorldIndex world, long chunkKey) {
+        return world.partitions[stripe(RegionShard.regionKeyOfChunk(BlockKey.chunkX(chunkKey), BlockKey.chunkZ(chunkKey)))];
+    }
+
+    private static int stripe(long regionKey) {
+        long h = regionKey * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 58) & (STRIPES - 1);
+    }
+
+    private static int slot(long chunkKey) {
+        long h = chunkKey * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 49) & (CHUNK_SLOTS - 1);
+    }
+}
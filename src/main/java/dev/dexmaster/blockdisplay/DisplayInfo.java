@@ -0,0 +1,11 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.UUID;
+
+// Immutable view of one display handed to other plugins
+public record DisplayInfo(UUID worldId, int x, int y, int z, int glowColor, String template) {
+
+    static DisplayInfo of(DisplayRecord record) {
+        return new DisplayInfo(record.worldId, record.x(), record.y(), record.z(), record.glowColor, record.template.name);
+    }
+}
@@ -0,0 +1,560 @@
+package dev.dexmaster.blockdisplay;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+// Append-only persistence: the main thread only enqueues small ops, a writer thread appends
+// them to displays.journal and periodically folds them into the per-region shards
+// under displays/<world>/, rewriting only the shards that changed.
+// Quota totals ride along: spawns and removals are journaled with their quota change, and every
+// compaction or clean stop checkpoints the totals to quotas.json, so after a crash they are the
+// checkpoint plus the replayed journal rather than a recount of every shard.
+final class DisplayJournal {
+
+    private static final int MAGIC = 0x42444A31; // "BDJ1", followed by the generation
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_RESET_PLAYER = 3;
+    private static final byte OP_RESET_WORLD = 4;
+
+    private static final Op STOP = new Op((byte) 0, null, 0L, null, null, false);
+    private static final Op COUNT = new Op((byte) 0, null, 0L, null, null, false);
+    private static final DisplayData REMOVED = new DisplayData();
+
+    private final Logger logger;
+    private final Gson gson;
+    private final PluginMetrics metrics;
+    private final File legacySnapshotFile;
+    private final File storageFolder;
+    private final File journalFile;
+    private final File quotaFile;
+    private final int compactAfter;
+    private final LinkedBlockingQueue<Op> queue = new LinkedBlockingQueue<>();
+
+    // Changes not yet folded into the shards: world name -> region key -> block key -> data or REMOVED
+    private final Map<String, LongKeyMap<LongKeyMap<DisplayData>>> pending = new HashMap<>();
+    private int pendingEntries;
+
+    // Quota totals of everything journaled so far; owned by the writer once it runs
+    private QuotaTotals totals = new QuotaTotals();
+    private boolean totalsKnown;
+    private QuotaTotals openedTotals = new QuotaTotals();
+    private volatile Consumer<QuotaTotals> recounted;
+    // Written into the journal header; quotas.json names the first generation it doesn't include
+    private long generation;
+
+    private Thread writer;
+    private FileOutputStream journalStream;
+    private DataOutputStream out;
+
+    DisplayJournal(Logger logger, Gson gson, PluginMetrics metrics, File dataFolder, int compactAfter) {
+        this.logger = logger;
+        this.gson = gson;
+        this.metrics = metrics;
+        this.legacySnapshotFile = new File(dataFolder, "displays.json");
+        this.storageFolder = new File(dataFolder, "displays");
+        this.journalFile = new File(dataFolder, "displays.journal");
+        this.quotaFile = new File(dataFolder, "quotas.json");
+        this.compactAfter = Math.max(1, compactAfter);
+    }
+
+    // Migrates a legacy displays.json, folds any journal left behind into the shards and starts
+    // the writer. Cost depends on the journal length, not on the number of stored displays.
+    void open() throws IOException {
+        pending.clear();
+        pendingEntries = 0;
+        QuotaTotals saved = readQuotaTotals();
+        totals = saved != null ? saved : new QuotaTotals();
+        totalsKnown = saved != null;
+        long journalGeneration = 0L;
+
+        List<DisplayData> legacy = readLegacySnapshot();
+        if (legacy != null) {
+            for (DisplayData data : legacy) {
+                // Not counted: without quotas.json the totals are counted from the shards anyway
+                apply(new Op(OP_PUT, data.world, BlockKey.pack(data.x, data.y, data.z), data, data.owner, false), false);
+            }
+        }
+        if (journalFile.exists()) {
+            journalGeneration = replay(saved);
+        }
+
+        flushShards();
+        // The folded journal's quota changes are in the totals now, the next journal starts after it
+        generation = Math.max(journalGeneration, saved != null ? saved.generation : 0L) + 1;
+        writeQuotaTotals();
+        openedTotals = totals.copy();
+        if (legacy != null) {
+            File migrated = new File(legacySnapshotFile.getParentFile(), "displays.json.migrated");
+            Files.move(legacySnapshotFile.toPath(), migrated.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            logger.info("Migrated " + legacy.size() + " displays from displays.json to region storage");
+        }
+        openJournal(false);
+        pendingEntries = 0;
+
+        writer = new Thread(this::run, "BlockDisplay-Journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Reads one region's displays; safe on any thread because a region is always read
+    // before any change to it can be journaled
+    List<DisplayData> readRegion(String world, long regionKey) throws IOException {
+        return RegionShard.read(new File(storageFolder, world), world, regionKey);
+    }
+
+    // Reads every stored display once; only called by the writer right after a compaction, to
+    // count quota totals that didn't exist yet
+    void forEachStored(Consumer<DisplayData> action) throws IOException {
+        File[] worldFolders = storageFolder.listFiles(File::isDirectory);
+        if (worldFolders == null) {
+            return;
+        }
+        for (File worldFolder : worldFolders) {
+            File[] shards = worldFolder.listFiles((dir, name) -> name.startsWith("r.") && name.endsWith(".bdr"));
+            if (shards == null) {
+                continue;
+            }
+            for (File shard : shards) {
+                String[] parts = shard.getName().split("\\.");
+                long regionKey;
+                try {
+                    regionKey = BlockKey.chunkKey(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    continue;
+                }
+                for (DisplayData data : RegionShard.read(worldFolder, worldFolder.getName(), regionKey)) {
+                    action.accept(data);
+                }
+            }
+        }
+    }
+
+    private List<DisplayData> readLegacySnapshot() throws IOException {
+        if (!legacySnapshotFile.exists()) {
+            return null;
+        }
+        String json = new String(Files.readAllBytes(legacySnapshotFile.toPath()), StandardCharsets.UTF_8);
+        Type listType = new TypeToken<List<DisplayData>>(){}.getType();
+        List<DisplayData> displays = gson.fromJson(json, listType);
+        return displays != null ? displays : new ArrayList<>();
+    }
+
+    // Returns the journal's generation. Its quota changes are applied unless the saved totals
+    // were checkpointed after it, i.e. a crash came between the checkpoint and the new journal.
+    private long replay(QuotaTotals saved) throws IOException {
+        int replayed = 0;
+        long journalGeneration = 0L;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Unrecognized journal header in " + journalFile.getName());
+            }
+            journalGeneration = in.readLong();
+            boolean counted = saved == null || saved.generation == journalGeneration;
+            while (true) {
+                Op op;
+                try {
+                    op = read(in);
+                } catch (EOFException e) {
+                    break;
+                } catch (IOException e) {
+                    // A crash mid-append leaves a torn last entry; everything before it is intact
+                    logger.warning("Ignoring unreadable journal tail: " + e.getMessage());
+                    break;
+                }
+                apply(op, counted);
+                replayed++;
+            }
+        } catch (EOFException e) {
+            // Empty journal, nothing was written after the header
+        }
+        if (replayed > 0) {
+            logger.info("Replayed " + replayed + " journal entries");
+        }
+        return journalGeneration;
+    }
+
+    // Totals the quota counters start from, as of open()
+    QuotaTotals quotaTotals() {
+        return openedTotals;
+    }
+
+    // False when there was no quotas.json to start from
+    boolean quotaTotalsKnown() {
+        return totalsKnown;
+    }
+
+    // Counts the stored displays on the writer thread, without holding up the caller, and hands
+    // over what has to be added to the totals returned by quotaTotals() to make them exact
+    void recount(Consumer<QuotaTotals> adjust) {
+        recounted = adjust;
+        enqueue(COUNT);
+    }
+
+    // Rewrites a display that is already counted in the quotas
+    void put(DisplayData data) {
+        enqueue(new Op(OP_PUT, data.world, BlockKey.pack(data.x, data.y, data.z), data, data.owner, false));
+    }
+
+    // A new display, counted towards its world and owner
+    void putCounted(DisplayData data) {
+        enqueue(new Op(OP_PUT, data.world, BlockKey.pack(data.x, data.y, data.z), data, data.owner, true));
+    }
+
+    // Drops a display whose quota count moves along with it
+    void remove(String world, long blockKey) {
+        enqueue(new Op(OP_REMOVE, world, blockKey, null, null, false));
+    }
+
+    // Drops a display and releases its quota count
+    void removeCounted(String world, long blockKey, String owner) {
+        enqueue(new Op(OP_REMOVE, world, blockKey, null, owner, true));
+    }
+
+    void resetPlayer(String owner) {
+        enqueue(new Op(OP_RESET_PLAYER, null, 0L, null, owner, true));
+    }
+
+    void resetWorld(String world) {
+        enqueue(new Op(OP_RESET_WORLD, world, 0L, null, null, true));
+    }
+
+    private void enqueue(Op op) {
+        // Nothing is recorded if opening failed, so the existing files are never overwritten
+        if (writer != null) {
+            queue.add(op);
+        }
+    }
+
+    // Flushes whatever is still queued and stops the writer
+    void close() {
+        if (writer == null) {
+            return;
+        }
+        queue.add(STOP);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+    }
+
+    private void run() {
+        List<Op> batch = new ArrayList<>();
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch);
+
+            try {
+                if (out == null) {
+                    openJournal(true);
+                }
+                int written = out.size();
+                boolean count = false;
+                for (Op op : batch) {
+                    if (op == STOP) {
+                        stopping = true;
+                        continue;
+                    }
+                    if (op == COUNT) {
+                        count = true;
+                        continue;
+                    }
+                    write(op);
+                    apply(op, true);
+                    pendingEntries++;
+                }
+                out.flush();
+                metrics.journalBytes.add(out.size() - written);
+                if (count) {
+                    countStored();
+                } else if (pendingEntries >= compactAfter) {
+                    compact();
+                }
+            } catch (IOException e) {
+                logger.severe("Failed to write display journal: " + e.getMessage());
+            }
+            batch.clear();
+        }
+
+        try {
+            closeJournal();
+            // Everything journaled is in the totals; the journal left behind is only replayed for the shards
+            generation++;
+            writeQuotaTotals();
+        } catch (IOException e) {
+            logger.severe("Failed to close display journal: " + e.getMessage());
+        }
+    }
+
+    // Folds everything journaled so far into the shards and counts them; what the counters
+    // started from plus the quota changes since is corrected by the difference
+    private void countStored() {
+        try {
+            compact();
+            QuotaTotals counted = new QuotaTotals();
+            int[] displays = {0};
+            forEachStored(data -> {
+                counted.add(data.world, DisplayQuotas.parseOwner(data.owner) != null ? data.owner : null, 1);
+                displays[0]++;
+            });
+            QuotaTotals adjustment = totals.difference(counted);
+            totals = counted;
+            totalsKnown = true;
+            writeQuotaTotals();
+            recounted.accept(adjustment);
+            logger.info("Counted " + displays[0] + " stored displays for quotas");
+        } catch (IOException e) {
+            logger.severe("Failed to count stored displays for quotas: " + e.getMessage());
+        }
+    }
+
+    private void apply(Op op, boolean counted) {
+        if (op.type == OP_RESET_PLAYER || op.type == OP_RESET_WORLD) {
+            if (counted) {
+                if (op.type == OP_RESET_PLAYER) {
+                    totals.players.remove(op.owner);
+                } else {
+                    totals.worlds.remove(op.world);
+                }
+            }
+            return;
+        }
+        long regionKey = RegionShard.regionKeyOf(op.blockKey);
+        if (counted && op.counted) {
+            totals.add(op.world, op.owner, op.type == OP_PUT ? 1 : -1);
+        }
+        switch (op.type) {
+            case OP_PUT -> changes(op.world, regionKey).put(op.blockKey, op.data);
+            case OP_REMOVE -> changes(op.world, regionKey).put(op.blockKey, REMOVED);
+            default -> throw new IllegalStateException("Unknown journal op " + op.type);
+        }
+    }
+
+    private LongKeyMap<DisplayData> changes(String world, long regionKey) {
+        return pending.computeIfAbsent(world, name -> new LongKeyMap<>())
+                .computeIfAbsent(regionKey, key -> new LongKeyMap<>());
+    }
+
+    private void write(Op op) throws IOException {
+        out.writeByte(op.type);
+        if (op.type == OP_RESET_PLAYER) {
+            out.writeUTF(op.owner);
+            return;
+        }
+        if (op.type == OP_RESET_WORLD) {
+            out.writeUTF(op.world);
+            return;
+        }
+        out.writeUTF(op.world);
+        out.writeLong(op.blockKey);
+        if (op.type == OP_REMOVE) {
+            out.writeBoolean(op.counted);
+            out.writeUTF(op.owner != null ? op.owner : "");
+        }
+        if (op.type == OP_PUT) {
+            out.writeUTF(op.data.glowColor);
+            out.writeUTF(op.data.material != null ? op.data.material : "");
+            out.writeDouble(op.data.offsetX);
+            out.writeDouble(op.data.offsetY);
+            out.writeDouble(op.data.offsetZ);
+            out.writeUTF(op.data.template != null ? op.data.template : "");
+            out.writeUTF(op.data.audience != null ? op.data.audience : "");
+            out.writeUTF(op.data.owner != null ? op.data.owner : "");
+            out.writeBoolean(op.counted);
+        }
+    }
+
+    private static Op read(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        if (type == OP_RESET_PLAYER) {
+            return new Op(type, null, 0L, null, in.readUTF(), true);
+        }
+        if (type == OP_RESET_WORLD) {
+            return new Op(type, in.readUTF(), 0L, null, null, true);
+        }
+        String world = in.readUTF();
+        long blockKey = in.readLong();
+        switch (type) {
+            case OP_PUT -> {
+                DisplayData data = new DisplayData();
+                data.world = world;
+                data.x = BlockKey.x(blockKey);
+                data.y = BlockKey.y(blockKey);
+                data.z = BlockKey.z(blockKey);
+                data.glowColor = in.readUTF();
+                String material = in.readUTF();
+                data.material = material.isEmpty() ? null : material;
+                data.offsetX = in.readDouble();
+                data.offsetY = in.readDouble();
+                data.offsetZ = in.readDouble();
+                String template = in.readUTF();
+                data.template = template.isEmpty() ? null : template;
+                String audience = in.readUTF();
+                data.audience = audience.isEmpty() ? null : audience;
+                String owner = in.readUTF();
+                data.owner = owner.isEmpty() ? null : owner;
+                boolean counted = in.readBoolean();
+                return new Op(type, world, blockKey, data, data.owner, counted);
+            }
+            case OP_REMOVE -> {
+                boolean counted = in.readBoolean();
+                String owner = in.readUTF();
+                return new Op(type, world, blockKey, null, owner.isEmpty() ? null : owner, counted);
+            }
+            default -> throw new IOException("Corrupt journal entry type " + type);
+        }
+    }
+
+    // Folds pending changes into their shards, then starts an empty journal.
+    // A crash before the journal is truncated only means it is replayed again, which is idempotent.
+    private void compact() throws IOException {
+        long start = System.nanoTime();
+        closeJournal();
+        try {
+            flushShards();
+            metrics.flush.record(start);
+        } catch (IOException e) {
+            // Keep appending to the current journal so nothing is lost; the next compaction retries
+            openJournal(true);
+            throw e;
+        }
+        // The totals now cover the old journal, which can go
+        generation++;
+        writeQuotaTotals();
+        openJournal(false);
+        pendingEntries = 0;
+    }
+
+    // Missing or unreadable totals are counted again rather than trusted
+    private QuotaTotals readQuotaTotals() {
+        if (!quotaFile.exists()) {
+            return null;
+        }
+        try {
+            QuotaTotals saved = gson.fromJson(Files.readString(quotaFile.toPath(), StandardCharsets.UTF_8), QuotaTotals.class);
+            if (saved != null && saved.worlds != null && saved.players != null) {
+                return saved;
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Failed to read quotas.json, counting stored displays again: " + e.getMessage());
+        }
+        return null;
+    }
+
+    // Replaced atomically so a crash never leaves half a file; skipped until the totals are known
+    private void writeQuotaTotals() {
+        if (!totalsKnown) {
+            return;
+        }
+        totals.generation = generation;
+        try {
+            File tempFile = new File(quotaFile.getParentFile(), quotaFile.getName() + ".tmp");
+            Files.writeString(tempFile.toPath(), gson.toJson(totals), StandardCharsets.UTF_8);
+            Files.move(tempFile.toPath(), quotaFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warning("Failed to save quotas: " + e.getMessage());
+        }
+    }
+
+    // Rewrites only the shards touched since the last compaction
+    private void flushShards() throws IOException {
+        IOException failure = null;
+        for (Iterator<Map.Entry<String, LongKeyMap<LongKeyMap<DisplayData>>>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, LongKeyMap<LongKeyMap<DisplayData>>> entry = it.next();
+            String world = entry.getKey();
+            File worldFolder = new File(storageFolder, world);
+            LongKeyMap<LongKeyMap<DisplayData>> regions = entry.getValue();
+
+            List<Long> written = new ArrayList<>();
+            List<IOException> failures = new ArrayList<>();
+            regions.forEach((regionKey, changes) -> {
+                try {
+                    LongKeyMap<DisplayData> shard = RegionShard.readByBlock(worldFolder, world, regionKey);
+                    changes.forEach((blockKey, data) -> {
+                        if (data == REMOVED) {
+                            shard.remove(blockKey);
+                        } else {
+                            shard.put(blockKey, data);
+                        }
+                    });
+                    metrics.shardBytes.add(RegionShard.write(worldFolder, regionKey, shard));
+                    written.add(regionKey);
+                } catch (IOException e) {
+                    failures.add(e);
+                }
+            });
+
+            for (long regionKey : written) {
+                regions.remove(regionKey);
+            }
+            if (regions.isEmpty()) {
+                it.remove();
+            }
+            if (!failures.isEmpty()) {
+                failure = failures.get(0);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void openJournal(boolean append) throws IOException {
+        File dataFolder = journalFile.getParentFile();
+        if (!dataFolder.exists()) {
+            dataFolder.mkdirs();
+        }
+        boolean writeHeader = !append || journalFile.length() == 0;
+        journalStream = new FileOutputStream(journalFile, append);
+        out = new DataOutputStream(new BufferedOutputStream(journalStream));
+        if (writeHeader) {
+            out.writeInt(MAGIC);
+            out.writeLong(generation);
+            out.flush();
+        }
+    }
+
+    private void closeJournal() throws IOException {
+        if (out == null) {
+            return;
+        }
+        out.flush();
+        journalStream.getFD().sync();
+        out.close();
+        out = null;
+        journalStream = null;
+    }
+
+    // Owner and counted only matter to the quota totals
+    private record Op(byte type, String world, long blockKey, DisplayData data, String owner, boolean counted) {
+    }
+}
@@ -0,0 +1,170 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.BlockDisplay;
+import org.bukkit.entity.Entity;
+
+// Level of detail from display density. Chunks crowded with display entities get a shorter view
+// range and can lose their glow, so clients stop rendering every outline in tracking range.
+// Each chunk keeps a live entity count and is only re-styled when the count crosses a tier boundary.
+final class DisplayLod {
+
+    // Applies from minEntities display entities in a chunk up; viewRangeScale multiplies the template's
+    record Tier(String name, int minEntities, float viewRangeScale, boolean glow) {
+    }
+
+    private static final Tier FULL = new Tier("full", 0, 1f, true);
+    private static final Tier[] NONE = {FULL};
+
+    private final BlockDisplayPlugin plugin;
+    private final DisplayIndex index;
+    private final PluginMetrics metrics;
+    private volatile boolean enabled;
+    private volatile int hysteresis;
+    private volatile Tier[] defaultTiers = NONE;
+    private volatile Map<String, Tier[]> worldTiers = Map.of();
+
+    DisplayLod(BlockDisplayPlugin plugin, DisplayIndex index, PluginMetrics metrics) {
+        this.plugin = plugin;
+        this.index = index;
+        this.metrics = metrics;
+    }
+
+    // Throws IllegalArgumentException naming the bad tier
+    void configure(ConfigurationSection section) {
+        if (section == null) {
+            enabled = false;
+            return;
+        }
+        Tier[] tiers = loadTiers(section.getConfigurationSection("tiers"));
+        Map<String, Tier[]> perWorld = new HashMap<>();
+        ConfigurationSection worlds = section.getConfigurationSection("worlds");
+        if (worlds != null) {
+            for (String world : worlds.getKeys(false)) {
+                ConfigurationSection worldSection = worlds.getConfigurationSection(world);
+                if (worldSection != null) {
+                    perWorld.put(world, worldSection.getBoolean("enabled", true)
+                            ? loadTiers(worldSection.getConfigurationSection("tiers")) : NONE);
+                }
+            }
+        }
+        hysteresis = Math.max(0, section.getInt("hysteresis", 8));
+        defaultTiers = tiers;
+        worldTiers = Map.copyOf(perWorld);
+        enabled = section.getBoolean("enabled", true);
+    }
+
+    // Sorted by density, with the full-detail tier first
+    private static Tier[] loadTiers(ConfigurationSection section) {
+        List<Tier> tiers = new ArrayList<>();
+        tiers.add(FULL);
+        if (section != null) {
+            for (String name : section.getKeys(false)) {
+                ConfigurationSection tier = section.getConfigurationSection(name);
+                if (tier == null) {
+                    continue;
+                }
+                int minEntities = tier.getInt("min-entities", 0);
+                float viewRange = (float) tier.getDouble("view-range", 1.0);
+                if (minEntities <= 0 || viewRange <= 0f) {
+                    throw new IllegalArgumentException("tier " + name + " needs a positive min-entities and view-range");
+                }
+                tiers.add(new Tier(name, minEntities, viewRange, tier.getBoolean("glow", true)));
+            }
+        }
+        tiers.sort(Comparator.comparingInt(Tier::minEntities));
+        return tiers.toArray(new Tier[0]);
+    }
+
+    private Tier[] tiers(World world) {
+        if (!enabled) {
+            return NONE;
+        }
+        Tier[] tiers = worldTiers.get(world.getName());
+        return tiers != null ? tiers : defaultTiers;
+    }
+
+    // Tier a chunk's entities are currently styled with, full detail for an untracked chunk
+    Tier tier(World world, ChunkBucket bucket) {
+        Tier[] tiers = tiers(world);
+        return bucket != null ? tiers[Math.min(bucket.lodTier, tiers.length - 1)] : tiers[0];
+    }
+
+    // Sets view range and glow on an entity before it spawns or right after it is adopted
+    static void style(BlockDisplay display, DisplayTemplate template, Tier tier) {
+        display.setViewRange(template.viewRange * tier.viewRangeScale());
+        display.setGlowing(tier.glow());
+    }
+
+    // Called on the chunk's region whenever one of its display entities appears or goes away
+    void changed(World world, ChunkBucket bucket, int delta) {
+        bucket.entities += delta;
+        if (!bucket.lodQueued && select(tiers(world), bucket) != bucket.lodTier) {
+            bucket.lodQueued = true;
+            // Applied once the current change has settled, e.g. after a remesh swapped all its entities
+            plugin.getServer().getRegionScheduler().run(plugin, world, bucket.chunkX(), bucket.chunkZ(),
+                    task -> apply(world, bucket, false));
+        }
+    }
+
+    // The chunk's entities unloaded with it; adopted ones are re-styled when it loads again
+    void released(ChunkBucket bucket) {
+        bucket.entities = 0;
+    }
+
+    // After a reload every chunk with entities is re-styled, since its tier may have changed in place
+    void relevelAll() {
+        for (ChunkBucket bucket : index.buckets()) {
+            World world = plugin.getServer().getWorld(bucket.worldId);
+            if (world != null && bucket.entities > 0) {
+                plugin.runAtChunk(world, bucket.chunkX(), bucket.chunkZ(), () -> apply(world, bucket, true));
+            }
+        }
+    }
+
+    // A chunk stays in a denser tier until it is hysteresis entities below it,
+    // so one hovering at a boundary doesn't restyle its entities back and forth
+    private int select(Tier[] tiers, ChunkBucket bucket) {
+        int count = bucket.entities;
+        int target = 0;
+        for (int i = 1; i < tiers.length; i++) {
+            if (count >= tiers[i].minEntities()) {
+                target = i;
+            }
+        }
+        int current = bucket.lodTier;
+        if (target < current && current < tiers.length && count >= tiers[current].minEntities() - hysteresis) {
+            return current;
+        }
+        return target;
+    }
+
+    private void apply(World world, ChunkBucket bucket, boolean restyle) {
+        bucket.lodQueued = false;
+        Tier[] tiers = tiers(world);
+        int target = select(tiers, bucket);
+        if (target == bucket.lodTier && !restyle) {
+            return;
+        }
+        bucket.lodTier = target;
+        Tier tier = tiers[target];
+        bucket.forEach(record -> {
+            // Cuboids never cross chunks, so each entity is styled once via its mesh's first member
+            if (record.mesh == null || record.mesh.template() != record) {
+                return;
+            }
+            Entity entity = world.getEntity(record.mesh.entityId);
+            if (entity instanceof BlockDisplay display) {
+                style(display, record.template, tier);
+            }
+        });
+        metrics.lodChanges.increment();
+    }
+}
@@ -0,0 +1,36 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.List;
+import java.util.UUID;
+
+// A cuboid of same-color support blocks rendered by one scaled BlockDisplay
+final class DisplayMesh {
+
+    final List<DisplayRecord> members;
+    final int minX, minY, minZ;
+    final int sizeX, sizeY, sizeZ;
+    UUID entityId;
+
+    DisplayMesh(List<DisplayRecord> members, int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ) {
+        this.members = members;
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+    }
+
+    static DisplayMesh single(DisplayRecord record) {
+        return new DisplayMesh(List.of(record), record.x(), record.y(), record.z(), 1, 1, 1);
+    }
+
+    // Members all share template, color, audience and offsets, so any of them describes the rendering
+    DisplayRecord template() {
+        return members.get(0);
+    }
+
+    boolean isSingle() {
+        return members.size() == 1;
+    }
+}
@@ -0,0 +1,173 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+
+// Display caps per chunk, per player and per world. Admission only reads counters: the chunk's
+// bucket size, and per-player and per-world totals kept alongside the tracker. Those totals also
+// cover regions that aren't loaded, so the journal keeps them alongside the stored displays.
+final class DisplayQuotas {
+
+    private final Map<String, AtomicInteger> worlds = new ConcurrentHashMap<>();
+    private final Map<UUID, AtomicInteger> players = new ConcurrentHashMap<>();
+
+    enum Full { CHUNK, PLAYER, WORLD }
+
+    // 0 means unlimited
+    private volatile int perChunk;
+    private volatile int perPlayer;
+    private volatile int perWorld;
+    private volatile Map<String, Integer> worldLimits = Map.of();
+
+    void configure(int perChunk, int perPlayer, int perWorld, Map<String, Integer> worldLimits) {
+        this.perChunk = Math.max(0, perChunk);
+        this.perPlayer = Math.max(0, perPlayer);
+        this.perWorld = Math.max(0, perWorld);
+        this.worldLimits = Map.copyOf(worldLimits);
+    }
+
+    // Starts from the totals the journal opened with
+    void load(QuotaTotals totals) {
+        worlds.clear();
+        players.clear();
+        totals.worlds.forEach((world, count) -> worlds.put(world, new AtomicInteger(count)));
+        totals.players.forEach((player, count) -> {
+            UUID owner = parseOwner(player);
+            if (owner != null) {
+                players.put(owner, new AtomicInteger(count));
+            }
+        });
+    }
+
+    // Applies a correction from the journal's background count; displays spawned or removed
+    // meanwhile were counted by both, so only the difference is added
+    void adjust(QuotaTotals difference) {
+        difference.worlds.forEach((world, delta) -> add(worlds.computeIfAbsent(world, name -> new AtomicInteger()), delta));
+        difference.players.forEach((player, delta) -> {
+            UUID owner = parseOwner(player);
+            if (owner != null) {
+                add(players.computeIfAbsent(owner, id -> new AtomicInteger()), delta);
+            }
+        });
+    }
+
+    static UUID parseOwner(String owner) {
+        if (owner == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(owner);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Reserves room for one display and returns null, or returns which quota is full.
+    // Called on the chunk's region; the bucket is null for a chunk without displays.
+    Full admit(String world, ChunkBucket bucket, UUID owner, boolean bypass) {
+        if (bypass) {
+            charge(world, owner);
+            return null;
+        }
+        if (perChunk > 0 && bucket != null && bucket.size() >= perChunk) {
+            return Full.CHUNK;
+        }
+        AtomicInteger worldCount = worlds.computeIfAbsent(world, name -> new AtomicInteger());
+        if (!tryIncrement(worldCount, worldLimit(world))) {
+            return Full.WORLD;
+        }
+        if (owner != null && !tryIncrement(players.computeIfAbsent(owner, id -> new AtomicInteger()), perPlayer)) {
+            worldCount.decrementAndGet();
+            return Full.PLAYER;
+        }
+        return null;
+    }
+
+    Component message(Full full, String world) {
+        return Component.text(describe(full, world) + ".", NamedTextColor.RED);
+    }
+
+    String describe(Full full, String world) {
+        return switch (full) {
+            case CHUNK -> "This chunk already holds the maximum of " + perChunk + " displays";
+            case PLAYER -> "You have reached your limit of " + perPlayer + " displays";
+            case WORLD -> world + " already holds the maximum of " + worldLimit(world) + " displays";
+        };
+    }
+
+    // Counts a display that skipped the checks
+    private void charge(String world, UUID owner) {
+        worlds.computeIfAbsent(world, name -> new AtomicInteger()).incrementAndGet();
+        if (owner != null) {
+            players.computeIfAbsent(owner, id -> new AtomicInteger()).incrementAndGet();
+        }
+    }
+
+    // A tracked display was removed
+    void release(String world, UUID owner) {
+        decrement(worlds.get(world));
+        if (owner != null) {
+            decrement(players.get(owner));
+        }
+    }
+
+    int worldUsage(String world) {
+        AtomicInteger count = worlds.get(world);
+        return count != null ? count.get() : 0;
+    }
+
+    int playerUsage(UUID player) {
+        AtomicInteger count = players.get(player);
+        return count != null ? count.get() : 0;
+    }
+
+    int worldLimit(String world) {
+        return worldLimits.getOrDefault(world, perWorld);
+    }
+
+    int perChunk() {
+        return perChunk;
+    }
+
+    int perPlayer() {
+        return perPlayer;
+    }
+
+    // Forgives a player's usage; their displays stay but no longer count
+    void resetPlayer(UUID player) {
+        players.remove(player);
+    }
+
+    void resetWorld(String world) {
+        worlds.remove(world);
+    }
+
+    // Compare-and-set so concurrent regions can never overshoot the limit together
+    private static boolean tryIncrement(AtomicInteger count, int limit) {
+        while (true) {
+            int current = count.get();
+            if (limit > 0 && current >= limit) {
+                return false;
+            }
+            if (count.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private static void add(AtomicInteger count, int delta) {
+        count.getAndUpdate(current -> Math.max(0, current + delta));
+    }
+
+    // Totals start at zero after a reset, so they never go below it
+    private static void decrement(AtomicInteger count) {
+        if (count != null) {
+            count.getAndUpdate(current -> Math.max(0, current - 1));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.UUID;
+
+import org.bukkit.Material;
+
+// Lightweight description of one display; the entity only exists while its chunk is loaded
+public final class DisplayRecord {
+
+    final UUID worldId;
+    final long blockKey;
+    final double offsetX, offsetY, offsetZ;
+    final DisplayTemplate template;
+    // Packed 0xRRGGBB, any color rather than just the named ones
+    int glowColor;
+    // Owner or group allowed to see the display, null when everyone can
+    final String audience;
+    // Player charged for it in the quotas, null when nobody is
+    final UUID owner;
+    // Support block type, captured the first time the chunk is loaded if unknown
+    Material material;
+    // Cuboid whose entity renders this display, possibly shared with its neighbours;
+    // null while the display is not materialized
+    DisplayMesh mesh;
+    // An event-driven check is already scheduled on its region
+    boolean suspected;
+
+    DisplayRecord(UUID worldId, long blockKey, Material material, DisplayTemplate template, int glowColor,
+                  String audience, UUID owner, double offsetX, double offsetY, double offsetZ) {
+        this.worldId = worldId;
+        this.blockKey = blockKey;
+        this.material = material;
+        this.template = template;
+        this.glowColor = glowColor;
+        this.audience = audience;
+        this.owner = owner;
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+        this.offsetZ = offsetZ;
+    }
+
+    public UUID worldId() {
+        return worldId;
+    }
+
+    public int x() {
+        return BlockKey.x(blockKey);
+    }
+
+    public int y() {
+        return BlockKey.y(blockKey);
+    }
+
+    public int z() {
+        return BlockKey.z(blockKey);
+    }
+
+    public int glowColor() {
+        return glowColor;
+    }
+
+    public String audience() {
+        return audience;
+    }
+
+    public UUID owner() {
+        return owner;
+    }
+
+    public boolean isMaterialized() {
+        return mesh != null;
+    }
+}
@@ -0,0 +1,145 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.util.BoundingBox;
+
+// BlockDisplayService on top of the plugin's own spawn, remove and recolor paths
+final class DisplayService implements BlockDisplayService {
+
+    private final BlockDisplayPlugin plugin;
+    private final DisplayIndex index;
+
+    DisplayService(BlockDisplayPlugin plugin, DisplayIndex index) {
+        this.plugin = plugin;
+        this.index = index;
+    }
+
+    @Override
+    public CompletableFuture<Integer> spawnAll(Collection<Block> blocks, String template) {
+        return spawnAll(blocks, template, null);
+    }
+
+    @Override
+    public CompletableFuture<Integer> spawnAll(Collection<Block> blocks, String template, int glowColor) {
+        return spawnAll(blocks, template, (Integer) glowColor);
+    }
+
+    private CompletableFuture<Integer> spawnAll(Collection<Block> blocks, String name, Integer glowColor) {
+        DisplayTemplate template = plugin.template(name);
+        if (template == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Unknown display template: " + name));
+        }
+        int color = glowColor != null ? glowColor : template.glowColor;
+        List<DisplayInfo> changed = new ArrayList<>();
+        return run(BatchTask.byChunk(blocks), chunk -> {
+            // Blocks of unloaded chunks can't be checked without loading them, they are skipped
+            if (!chunk.world().isChunkLoaded(chunk.chunkX(), chunk.chunkZ())) {
+                return 0;
+            }
+            int spawned = 0;
+            for (Block block : chunk.items()) {
+                if (block.getType().isAir() || plugin.checkSupportBlock(block) != null || plugin.hasDisplayAt(block)
+                        || plugin.admitDisplay(block, null, false) != null) {
+                    continue;
+                }
+                DisplayRecord record = plugin.spawnAt(block, template, color, null, null);
+                spawned++;
+                changed.add(DisplayInfo.of(record));
+            }
+            return spawned;
+        }, DisplayBatchEvent.Action.SPAWN, changed);
+    }
+
+    @Override
+    public CompletableFuture<Integer> removeAll(Collection<Block> blocks) {
+        List<DisplayInfo> changed = new ArrayList<>();
+        return run(BatchTask.byChunk(blocks), chunk -> {
+            List<DisplayRecord> hits = find(chunk);
+            for (DisplayRecord record : hits) {
+                changed.add(DisplayInfo.of(record));
+            }
+            plugin.removeDisplays(chunk.world(), hits);
+            return hits.size();
+        }, DisplayBatchEvent.Action.REMOVE, changed);
+    }
+
+    @Override
+    public CompletableFuture<Integer> recolorAll(Collection<Block> blocks, int glowColor) {
+        List<DisplayInfo> changed = new ArrayList<>();
+        return run(BatchTask.byChunk(blocks), chunk -> {
+            List<DisplayRecord> hits = find(chunk);
+            hits.removeIf(record -> record.glowColor == glowColor);
+            int recolored = plugin.recolorDisplays(chunk.world(), hits, glowColor);
+            for (DisplayRecord record : hits) {
+                changed.add(DisplayInfo.of(record));
+            }
+            return recolored;
+        }, DisplayBatchEvent.Action.RECOLOR, changed);
+    }
+
+    @Override
+    public CompletableFuture<List<DisplayInfo>> query(World world, BoundingBox box) {
+        List<DisplayInfo> found = new ArrayList<>();
+        int minX = (int) Math.floor(box.getMinX()), minZ = (int) Math.floor(box.getMinZ());
+        int maxX = (int) Math.ceil(box.getMaxX()), maxZ = (int) Math.ceil(box.getMaxZ());
+        BatchTask<Void> task = new BatchTask<>(plugin, BatchTask.covering(world, minX, minZ, maxX, maxZ), chunk -> {
+            plugin.ensureChunkLoaded(world, chunk.chunkX(), chunk.chunkZ());
+            ChunkBucket bucket = index.bucket(world.getUID(), chunk.chunkX(), chunk.chunkZ());
+            if (bucket != null) {
+                // A display belongs to the box if the center of its support block does
+                bucket.forEach(record -> {
+                    if (box.contains(record.x() + 0.5, record.y() + 0.5, record.z() + 0.5)) {
+                        found.add(DisplayInfo.of(record));
+                    }
+                });
+            }
+            return 0;
+        }, plugin.apiBudgetMicros());
+        plugin.startBatch(task);
+        return task.future().thenApply(count -> found);
+    }
+
+    @Override
+    public int parseColor(String color) throws IllegalArgumentException {
+        return DisplayColors.parse(color);
+    }
+
+    // Tracked displays on the chunk's blocks; the batch only gets here once the region was read
+    private List<DisplayRecord> find(BatchTask.ChunkWork<Block> chunk) {
+        plugin.ensureChunkLoaded(chunk.world(), chunk.chunkX(), chunk.chunkZ());
+        List<DisplayRecord> hits = new ArrayList<>();
+        ChunkBucket bucket = index.bucket(chunk.world().getUID(), chunk.chunkX(), chunk.chunkZ());
+        if (bucket == null) {
+            return hits;
+        }
+        for (Block block : chunk.items()) {
+            if (bucket.isOccupied(block.getX(), block.getY(), block.getZ())) {
+                DisplayRecord record = bucket.get(BlockKey.pack(block.getX(), block.getY(), block.getZ()));
+                if (record != null) {
+                    hits.add(record);
+                }
+            }
+        }
+        return hits;
+    }
+
+    // Runs the batch and fires one event for it if anything changed; listeners are looked up when
+    // the batch ends, so one registered while it ran still hears about it
+    private <T> CompletableFuture<Integer> run(List<BatchTask.ChunkWork<T>> chunks, BatchTask.Step<T> step,
+                                               DisplayBatchEvent.Action action, List<DisplayInfo> changed) {
+        BatchTask<T> task = new BatchTask<>(plugin, chunks, step, plugin.apiBudgetMicros());
+        plugin.startBatch(task);
+        return task.future().thenApply(count -> {
+            if (count > 0 && DisplayBatchEvent.hasListeners()) {
+                plugin.getServer().getPluginManager().callEvent(new DisplayBatchEvent(action, List.copyOf(changed)));
+            }
+            return count;
+        });
+    }
+}
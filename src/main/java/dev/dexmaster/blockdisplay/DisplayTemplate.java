@@ -0,0 +1,85 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.Objects;
+
+import org.bukkit.Bukkit;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Display;
+import org.bukkit.util.Transformation;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
+// How a display looks, compiled once from config.yml and shared by every display using it.
+// Immutable: the entity API copies block data, brightness and transformations on set.
+final class DisplayTemplate {
+
+    final String name;
+    final BlockData block;
+    // Glow used when a spawn doesn't pick its own
+    final int glowColor;
+    // Null keeps the light level of the display's position
+    final Display.Brightness brightness;
+    final float viewRange;
+    final float scale;
+    // Null at scale 1, where the entity keeps its default transformation
+    final Transformation transformation;
+    // Null for a static display
+    final DisplayAnimation animation;
+
+    DisplayTemplate(String name, BlockData block, int glowColor, Display.Brightness brightness, float viewRange, float scale,
+                    DisplayAnimation animation) {
+        this.name = name;
+        this.block = block;
+        this.glowColor = glowColor;
+        this.brightness = brightness;
+        this.viewRange = viewRange;
+        this.scale = scale;
+        this.transformation = scale == 1f ? null
+                : new Transformation(new Vector3f(), new Quaternionf(), new Vector3f(scale, scale, scale), new Quaternionf());
+        this.animation = animation;
+    }
+
+    // Throws IllegalArgumentException naming the bad setting
+    static DisplayTemplate load(String name, ConfigurationSection section, int defaultGlow) {
+        BlockData block = Bukkit.createBlockData(section.getString("block", "minecraft:shulker_box"));
+        String glow = section.getString("glow");
+        int glowColor = glow != null ? DisplayColors.parse(glow) : defaultGlow;
+        int light = section.getInt("brightness", 15);
+        if (light < -1 || light > 15) {
+            throw new IllegalArgumentException("brightness must be -1 to 15, got " + light);
+        }
+        Display.Brightness brightness = light >= 0 ? new Display.Brightness(light, light) : null;
+        float viewRange = (float) section.getDouble("view-range", 1.0);
+        float scale = (float) section.getDouble("scale", 1.0);
+        if (viewRange <= 0f || scale <= 0f) {
+            throw new IllegalArgumentException("view-range and scale must be positive");
+        }
+        ConfigurationSection animation = section.getConfigurationSection("animation");
+        return new DisplayTemplate(name, block, glowColor, brightness, viewRange, scale,
+                animation != null ? DisplayAnimation.load(animation) : null);
+    }
+
+    // Cuboids are one entity scaled to their size, which only matches unscaled displays
+    boolean isMergeable() {
+        return scale == 1f;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DisplayTemplate other)) {
+            return false;
+        }
+        return name.equals(other.name) && Objects.equals(block, other.block) && glowColor == other.glowColor
+                && Objects.equals(brightness, other.brightness) && viewRange == other.viewRange && scale == other.scale
+                && Objects.equals(animation, other.animation);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+}
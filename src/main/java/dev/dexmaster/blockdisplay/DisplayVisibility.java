@@ -0,0 +1,300 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.persistence.PersistentDataType;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+
+// Per-player visibility of displays that carry an audience, either their owner or a group.
+// Such entities spawn hidden for everyone and are only shown to members, so their spawn and
+// metadata packets never reach anyone else. Players' memberships are cached and diffed, so a join,
+// world change or group change only shows or hides the audiences that actually changed.
+final class DisplayVisibility {
+
+    // Audience keys stored with each display: "player:<uuid>" or "group:<name>"
+    static final String OWNER_PREFIX = "player:";
+    static final String GROUP_PREFIX = "group:";
+
+    private final BlockDisplayPlugin plugin;
+    // Loaded entities of displays with an audience: world -> audience -> entity id -> entity. The
+    // handles are taken on the entity's region and only passed to showEntity/hideEntity on a
+    // player's thread, so no player thread looks entities up in another region.
+    private final Map<UUID, Map<String, Map<UUID, Entity>>> entities = new ConcurrentHashMap<>();
+    // Online players and, per audience, the ones who belong to it
+    private final Map<UUID, Viewer> viewers = new ConcurrentHashMap<>();
+    private final Map<String, Set<UUID>> members = new ConcurrentHashMap<>();
+    private final Set<UUID> seeAll = ConcurrentHashMap.newKeySet();
+    // Audience new spawns of an online player get, when it isn't public. The choice is kept in the
+    // player's own data, so it survives relogs and restarts, and only cached here while they're online.
+    private final Map<UUID, String> spawnAudiences = new ConcurrentHashMap<>();
+    private final NamespacedKey spawnAudienceTag;
+    private volatile List<String> groups = List.of();
+    private volatile long refreshTicks = 100L;
+
+    private static final class Viewer {
+        volatile Set<String> audiences = Set.of();
+        volatile boolean seesAll;
+        // Audiences shown per world; only touched on the player's thread
+        final Map<UUID, Set<String>> applied = new HashMap<>();
+        ScheduledTask refreshTask;
+    }
+
+    DisplayVisibility(BlockDisplayPlugin plugin) {
+        this.plugin = plugin;
+        this.spawnAudienceTag = new NamespacedKey(plugin, "spawn-audience");
+    }
+
+    void configure(List<String> groups, long refreshTicks) {
+        this.groups = groups.stream().map(group -> group.toLowerCase(Locale.ROOT)).distinct().toList();
+        this.refreshTicks = Math.max(1L, refreshTicks);
+    }
+
+    static String owner(UUID playerId) {
+        return OWNER_PREFIX + playerId;
+    }
+
+    static String group(String name) {
+        return GROUP_PREFIX + name.toLowerCase(Locale.ROOT);
+    }
+
+    // Readable form for the player whose spawn audience it is, e.g. "group builders"
+    static String describe(String audience) {
+        if (audience == null) {
+            return "everyone";
+        }
+        if (audience.startsWith(GROUP_PREFIX)) {
+            return "group " + audience.substring(GROUP_PREFIX.length());
+        }
+        return "only you";
+    }
+
+    List<String> groups() {
+        return groups;
+    }
+
+    String spawnAudience(UUID playerId) {
+        return spawnAudiences.get(playerId);
+    }
+
+    // On the player's thread, like every access to their data
+    void setSpawnAudience(Player player, String audience) {
+        if (audience == null) {
+            player.getPersistentDataContainer().remove(spawnAudienceTag);
+            spawnAudiences.remove(player.getUniqueId());
+        } else {
+            player.getPersistentDataContainer().set(spawnAudienceTag, PersistentDataType.STRING, audience);
+            spawnAudiences.put(player.getUniqueId(), audience);
+        }
+    }
+
+    private void loadSpawnAudience(Player player) {
+        UUID playerId = player.getUniqueId();
+        String audience = player.getPersistentDataContainer().get(spawnAudienceTag, PersistentDataType.STRING);
+        if (audience == null) {
+            spawnAudiences.remove(playerId);
+            return;
+        }
+        // A group that was dropped from the config or that the player left falls back to private, never public
+        if (audience.startsWith(GROUP_PREFIX)) {
+            String group = audience.substring(GROUP_PREFIX.length());
+            if (!groups.contains(group) || !isMember(player, group)) {
+                audience = owner(playerId);
+            }
+        } else {
+            audience = owner(playerId);
+        }
+        spawnAudiences.put(playerId, audience);
+    }
+
+    boolean isMember(Player player, String group) {
+        return player.hasPermission("bd.group." + group);
+    }
+
+    // Called on the entity's region right after it spawned or was adopted
+    void track(World world, Entity entity, String audience) {
+        entity.setVisibleByDefault(false);
+        entities.computeIfAbsent(world.getUID(), id -> new ConcurrentHashMap<>())
+                .compute(audience, (key, handles) -> {
+                    Map<UUID, Entity> map = handles != null ? handles : new ConcurrentHashMap<>();
+                    map.put(entity.getUniqueId(), entity);
+                    return map;
+                });
+        Set<UUID> audienceMembers = members.get(audience);
+        if (audienceMembers != null) {
+            for (UUID playerId : audienceMembers) {
+                showTo(playerId, world, entity);
+            }
+        }
+        for (UUID playerId : seeAll) {
+            showTo(playerId, world, entity);
+        }
+    }
+
+    // Called when the entity is removed or unloaded with its chunk
+    void untrack(UUID worldId, UUID entityId, String audience) {
+        Map<String, Map<UUID, Entity>> byAudience = entities.get(worldId);
+        if (byAudience != null) {
+            byAudience.computeIfPresent(audience, (key, handles) -> {
+                handles.remove(entityId);
+                return handles.isEmpty() ? null : handles;
+            });
+        }
+    }
+
+    private void showTo(UUID playerId, World world, Entity entity) {
+        Player player = plugin.getServer().getPlayer(playerId);
+        if (player == null || player.getWorld() != world) {
+            return;
+        }
+        // The player's hidden and shown entities belong to its own thread
+        if (plugin.getServer().isOwnedByCurrentRegion(player)) {
+            player.showEntity(plugin, entity);
+        } else {
+            player.getScheduler().run(plugin, task -> player.showEntity(plugin, entity), null);
+        }
+    }
+
+    // On the player's thread when they join, or for everyone online on enable
+    void join(Player player) {
+        Viewer viewer = new Viewer();
+        Viewer previous = viewers.put(player.getUniqueId(), viewer);
+        if (previous != null && previous.refreshTask != null) {
+            previous.refreshTask.cancel();
+        }
+        loadSpawnAudience(player);
+        updateMembership(player, viewer);
+        sync(player, viewer, true);
+        // Permission plugins fire no event on group changes, so memberships are re-checked periodically
+        viewer.refreshTask = player.getScheduler().runAtFixedRate(plugin, task -> refresh(player),
+                null, refreshTicks, refreshTicks);
+    }
+
+    void quit(Player player) {
+        spawnAudiences.remove(player.getUniqueId());
+        Viewer viewer = viewers.remove(player.getUniqueId());
+        if (viewer == null) {
+            return;
+        }
+        if (viewer.refreshTask != null) {
+            viewer.refreshTask.cancel();
+        }
+        for (String audience : viewer.audiences) {
+            members.computeIfPresent(audience, (key, ids) -> {
+                ids.remove(player.getUniqueId());
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+        seeAll.remove(player.getUniqueId());
+    }
+
+    // On the player's thread after a world change: entities loaded while they were away were never shown to them
+    void changedWorld(Player player) {
+        Viewer viewer = viewers.get(player.getUniqueId());
+        if (viewer != null) {
+            sync(player, viewer, true);
+        }
+    }
+
+    // Re-checks group permissions and shows or hides only the audiences that changed
+    void refresh(Player player) {
+        Viewer viewer = viewers.get(player.getUniqueId());
+        if (viewer != null && updateMembership(player, viewer)) {
+            sync(player, viewer, false);
+        }
+    }
+
+    // After a reload changed the groups
+    void refreshAll() {
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            player.getScheduler().run(plugin, task -> refresh(player), null);
+        }
+    }
+
+    void clear() {
+        for (Viewer viewer : viewers.values()) {
+            if (viewer.refreshTask != null) {
+                viewer.refreshTask.cancel();
+            }
+        }
+        viewers.clear();
+        spawnAudiences.clear();
+        members.clear();
+        seeAll.clear();
+        entities.clear();
+    }
+
+    // Returns whether anything changed
+    private boolean updateMembership(Player player, Viewer viewer) {
+        UUID playerId = player.getUniqueId();
+        Set<String> audiences = new HashSet<>();
+        audiences.add(owner(playerId));
+        for (String group : groups) {
+            if (isMember(player, group)) {
+                audiences.add(GROUP_PREFIX + group);
+            }
+        }
+        boolean seesAll = player.hasPermission("bd.visibility.all");
+        if (audiences.equals(viewer.audiences) && seesAll == viewer.seesAll) {
+            return false;
+        }
+
+        for (String audience : viewer.audiences) {
+            if (!audiences.contains(audience)) {
+                members.computeIfPresent(audience, (key, ids) -> {
+                    ids.remove(playerId);
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        }
+        for (String audience : audiences) {
+            members.computeIfAbsent(audience, key -> ConcurrentHashMap.newKeySet()).add(playerId);
+        }
+        if (seesAll) {
+            seeAll.add(playerId);
+        } else {
+            seeAll.remove(playerId);
+        }
+        viewer.audiences = Set.copyOf(audiences);
+        viewer.seesAll = seesAll;
+        return true;
+    }
+
+    // Shows the player's audiences in their world and hides the ones they left. A full sync shows
+    // every member entity again, otherwise only audiences not shown yet are touched.
+    private void sync(Player player, Viewer viewer, boolean full) {
+        World world = player.getWorld();
+        Set<String> applied = viewer.applied.computeIfAbsent(world.getUID(), id -> new HashSet<>());
+        Map<String, Map<UUID, Entity>> byAudience = entities.get(world.getUID());
+        if (byAudience == null) {
+            return;
+        }
+        for (Map.Entry<String, Map<UUID, Entity>> entry : byAudience.entrySet()) {
+            String audience = entry.getKey();
+            boolean member = viewer.seesAll || viewer.audiences.contains(audience);
+            boolean shown = applied.contains(audience);
+            if (member && (full || !shown)) {
+                for (Entity entity : entry.getValue().values()) {
+                    player.showEntity(plugin, entity);
+                }
+                applied.add(audience);
+            } else if (!member && shown) {
+                for (Entity entity : entry.getValue().values()) {
+                    player.hideEntity(plugin, entity);
+                }
+                applied.remove(audience);
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bukkit.World;
+
+// Incremental failsafe: walks chunk buckets round-robin from the global tick and hands a
+// bounded slice of displays per run to the region owning each chunk for verification.
+// All slices of one run share a single time budget, whichever regions run them. Each chunk keeps
+// a cursor into its record map, so a slice only copies and checks the records it covers and one
+// cut short by the budget is resumed from the first unchecked record on the next run.
+final class FailsafeSweeper implements Runnable {
+
+    private final BlockDisplayPlugin plugin;
+    private final DisplayIndex index;
+    private final PluginMetrics metrics;
+    private final ArrayDeque<ChunkBucket> ring = new ArrayDeque<>();
+    private final ArrayDeque<ChunkBucket> touched = new ArrayDeque<>();
+    // Chunks whose last slice ran out of budget, continued before anything else
+    private final ArrayDeque<ChunkBucket> resumed = new ArrayDeque<>();
+
+    private volatile long budgetNanos;
+    private int intervalTicks;
+    private int periodTicks;
+
+    // Chunk currently being swept, continued on the next run if the quota ran out; the position
+    // only paces dispatching, the chunk's cursor says what was checked
+    private ChunkBucket current;
+    private World currentWorld;
+    private int currentPos;
+
+    FailsafeSweeper(BlockDisplayPlugin plugin, DisplayIndex index, PluginMetrics metrics) {
+        this.plugin = plugin;
+        this.index = index;
+        this.metrics = metrics;
+    }
+
+    synchronized void configure(long budgetMicros, int intervalTicks, int periodTicks) {
+        this.budgetNanos = Math.max(1L, budgetMicros) * 1000L;
+        this.intervalTicks = Math.max(1, intervalTicks);
+        this.periodTicks = Math.max(this.intervalTicks, periodTicks);
+    }
+
+    // Called whenever a display is tracked; new chunks join the round-robin ring
+    synchronized void enqueue(ChunkBucket bucket) {
+        if (!bucket.queued) {
+            bucket.queued = true;
+            ring.addLast(bucket);
+        }
+    }
+
+    // Recently touched chunks are verified before the regular round-robin
+    synchronized void touch(ChunkBucket bucket) {
+        enqueue(bucket);
+        if (!bucket.touched) {
+            bucket.touched = true;
+            touched.addLast(bucket);
+        }
+    }
+
+    synchronized void clear() {
+        ring.clear();
+        touched.clear();
+        resumed.clear();
+        current = null;
+        currentWorld = null;
+    }
+
+    @Override
+    public synchronized void run() {
+        int total = index.size();
+        if (total == 0) {
+            return;
+        }
+        // Spread the sweep so every display is verified once per period
+        int runsPerPeriod = periodTicks / intervalTicks;
+        int quota = Math.max(1, (total + runsPerPeriod - 1) / runsPerPeriod);
+        AtomicLong budget = new AtomicLong(budgetNanos);
+
+        int dispatched = 0;
+        while (dispatched < quota && !resumed.isEmpty()) {
+            ChunkBucket bucket = resumed.pollFirst();
+            bucket.resumeQueued = false;
+            World world = plugin.getServer().getWorld(bucket.worldId);
+            if (world == null || index.bucket(bucket.worldId, bucket.chunkKey) != bucket) {
+                continue;
+            }
+            int count = Math.min(quota - dispatched, bucket.size());
+            verifySlice(world, bucket, count, budget);
+            dispatched += count;
+        }
+        while (dispatched < quota) {
+            if (current == null && !nextChunk()) {
+                break;
+            }
+            int size = current.size();
+            if (currentPos >= size) {
+                current = null;
+                currentWorld = null;
+                continue;
+            }
+            int count = Math.min(quota - dispatched, size - currentPos);
+            verifySlice(currentWorld, current, count, budget);
+            currentPos += count;
+            dispatched += count;
+        }
+    }
+
+    // Runs on the chunk's region: checks up to count records from the chunk's cursor, a few at a
+    // time, charging the time to the run's shared budget. Reaching the end of the records starts
+    // the next lap from the first slot; running out of budget queues the bucket to be resumed.
+    private void verifySlice(World world, ChunkBucket bucket, int count, AtomicLong budget) {
+        plugin.runAtChunk(world, bucket.chunkX(), bucket.chunkZ(), () -> {
+            if (!world.isChunkLoaded(bucket.chunkX(), bucket.chunkZ())) {
+                return;
+            }
+            long start = System.nanoTime();
+            long mark = start;
+            int slot = bucket.sweepSlot;
+            List<DisplayRecord> batch = new ArrayList<>(8);
+            int checked = 0;
+            int removed = 0;
+            while (checked < count) {
+                long now = System.nanoTime();
+                long left = budget.addAndGet(mark - now);
+                mark = now;
+                if (left <= 0) {
+                    resume(bucket);
+                    break;
+                }
+                batch.clear();
+                int next = bucket.slice(slot, Math.min(8, count - checked), batch);
+                for (DisplayRecord record : batch) {
+                    if (plugin.verifyDisplay(world, record)) {
+                        removed++;
+                    }
+                }
+                checked += batch.size();
+                if (next < 0) {
+                    slot = 0;
+                    break;
+                }
+                slot = next;
+            }
+            bucket.sweepSlot = slot;
+            budget.addAndGet(mark - System.nanoTime());
+            metrics.sweepChecked.add(checked);
+            metrics.sweepRemoved.add(removed);
+            metrics.sweepSlice.record(start);
+        });
+    }
+
+    private synchronized void resume(ChunkBucket bucket) {
+        if (!bucket.resumeQueued) {
+            bucket.resumeQueued = true;
+            resumed.addLast(bucket);
+        }
+    }
+
+    // Picks the next loaded, non-empty chunk; unloaded chunks rotate to the back untouched
+    private boolean nextChunk() {
+        int skipped = 0;
+        int limit = ring.size() + touched.size();
+        while (skipped <= limit) {
+            ChunkBucket bucket = touched.pollFirst();
+            boolean fromTouched = bucket != null;
+            if (bucket != null) {
+                bucket.touched = false;
+            } else {
+                bucket = ring.pollFirst();
+                if (bucket == null) {
+                    return false;
+                }
+                bucket.queued = false;
+            }
+
+            // Bucket was emptied and dropped from the index since it was queued
+            if (bucket.isEmpty() || index.bucket(bucket.worldId, bucket.chunkKey) != bucket) {
+                continue;
+            }
+            if (!fromTouched) {
+                enqueue(bucket);
+            }
+
+            World world = plugin.getServer().getWorld(bucket.worldId);
+            if (world == null || !world.isChunkLoaded(bucket.chunkX(), bucket.chunkZ())) {
+                skipped++;
+                continue;
+            }
+
+            current = bucket;
+            currentWorld = world;
+            currentPos = 0;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,99 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Greedy 3D meshing: merges adjacent records with the same template, color, audience and offsets into cuboids,
+// growing along x, then z, then y
+final class GreedyMesher {
+
+    private static final Comparator<DisplayRecord> SCAN_ORDER = Comparator
+            .comparingInt(DisplayRecord::y)
+            .thenComparingInt(DisplayRecord::z)
+            .thenComparingInt(DisplayRecord::x);
+
+    private GreedyMesher() {
+    }
+
+    static List<DisplayMesh> mesh(Collection<DisplayRecord> records) {
+        // Only records that render identically can share an entity
+        Map<MergeKey, List<DisplayRecord>> groups = new HashMap<>();
+        List<DisplayMesh> meshes = new ArrayList<>();
+        for (DisplayRecord record : records) {
+            if (!record.template.isMergeable()) {
+                meshes.add(DisplayMesh.single(record));
+                continue;
+            }
+            MergeKey key = new MergeKey(record.template, record.glowColor, record.audience, record.offsetX, record.offsetY, record.offsetZ);
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(record);
+        }
+
+        for (List<DisplayRecord> group : groups.values()) {
+            meshGroup(group, meshes);
+        }
+        return meshes;
+    }
+
+    private static void meshGroup(List<DisplayRecord> group, List<DisplayMesh> meshes) {
+        if (group.size() == 1) {
+            meshes.add(DisplayMesh.single(group.get(0)));
+            return;
+        }
+
+        LongKeyMap<DisplayRecord> remaining = new LongKeyMap<>(group.size());
+        for (DisplayRecord record : group) {
+            remaining.put(record.blockKey, record);
+        }
+        group.sort(SCAN_ORDER);
+
+        for (DisplayRecord start : group) {
+            if (!remaining.containsKey(start.blockKey)) {
+                continue;
+            }
+            int x = start.x(), y = start.y(), z = start.z();
+
+            int sizeX = 1;
+            while (remaining.containsKey(BlockKey.pack(x + sizeX, y, z))) {
+                sizeX++;
+            }
+            int sizeZ = 1;
+            while (isFilled(remaining, x, y, z + sizeZ, sizeX, 1, 1)) {
+                sizeZ++;
+            }
+            int sizeY = 1;
+            while (isFilled(remaining, x, y + sizeY, z, sizeX, 1, sizeZ)) {
+                sizeY++;
+            }
+
+            List<DisplayRecord> members = new ArrayList<>(sizeX * sizeY * sizeZ);
+            for (int dy = 0; dy < sizeY; dy++) {
+                for (int dz = 0; dz < sizeZ; dz++) {
+                    for (int dx = 0; dx < sizeX; dx++) {
+                        members.add(remaining.remove(BlockKey.pack(x + dx, y + dy, z + dz)));
+                    }
+                }
+            }
+            meshes.add(new DisplayMesh(members, x, y, z, sizeX, sizeY, sizeZ));
+        }
+    }
+
+    private static boolean isFilled(LongKeyMap<DisplayRecord> remaining, int x, int y, int z, int sizeX, int sizeY, int sizeZ) {
+        for (int dy = 0; dy < sizeY; dy++) {
+            for (int dz = 0; dz < sizeZ; dz++) {
+                for (int dx = 0; dx < sizeX; dx++) {
+                    if (!remaining.containsKey(BlockKey.pack(x + dx, y + dy, z + dz))) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private record MergeKey(DisplayTemplate template, int color, String audience, double offsetX, double offsetY, double offsetZ) {
+    }
+}
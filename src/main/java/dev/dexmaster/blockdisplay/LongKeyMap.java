@@ -0,0 +1,201 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+// Open-addressing long -> V hash map (linear probing, backward-shift deletion).
+// Lookups and removals never box the key or allocate.
+public final class LongKeyMap<V> {
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private Object[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    public LongKeyMap() {
+        this(16);
+    }
+
+    public LongKeyMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expected / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    // Independent copy with the same capacity
+    public LongKeyMap<V> copy() {
+        LongKeyMap<V> copy = new LongKeyMap<>(4);
+        copy.keys = keys.clone();
+        copy.values = values.clone();
+        copy.used = used.clone();
+        copy.mask = mask;
+        copy.size = size;
+        copy.resizeAt = resizeAt;
+        return copy;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int index = indexOf(key);
+        return index >= 0 ? (V) values[index] : null;
+    }
+
+    private int indexOf(long key) {
+        int index = mix(key) & mask;
+        while (used[index]) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        int index = mix(key) & mask;
+        while (used[index]) {
+            if (keys[index] == key) {
+                V previous = (V) values[index];
+                values[index] = value;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+        used[index] = true;
+        keys[index] = key;
+        values[index] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return null;
+    }
+
+    public V computeIfAbsent(long key, LongFunction<? extends V> factory) {
+        V value = get(key);
+        if (value == null) {
+            value = factory.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        V previous = (V) values[index];
+        shiftKeys(index);
+        size--;
+        return previous;
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void shiftKeys(int gap) {
+        int index = gap;
+        while (true) {
+            index = (index + 1) & mask;
+            if (!used[index]) {
+                break;
+            }
+            int home = mix(keys[index]) & mask;
+            // Move the entry into the gap if its home slot is not between the gap and its current slot
+            if (gap <= index ? (home <= gap || home > index) : (home <= gap && home > index)) {
+                keys[gap] = keys[index];
+                values[gap] = values[index];
+                gap = index;
+            }
+        }
+        used[gap] = false;
+        values[gap] = null;
+    }
+
+    public void clear() {
+        if (size == 0) {
+            return;
+        }
+        Arrays.fill(used, false);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(Visitor<? super V> visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                visitor.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    // Visits up to max entries in slot order from slot start on and returns the slot to continue
+    // from, or -1 once the end of the table was reached. Entries moved by removals or a resize
+    // between two calls may be skipped or visited twice.
+    @SuppressWarnings("unchecked")
+    public int forEachFrom(int start, int max, Visitor<? super V> visitor) {
+        int visited = 0;
+        for (int i = start; i < keys.length; i++) {
+            if (used[i]) {
+                if (visited == max) {
+                    return i;
+                }
+                visitor.accept(keys[i], (V) values[i]);
+                visited++;
+            }
+        }
+        return -1;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int index = mix(oldKeys[i]) & mask;
+                while (used[index]) {
+                    index = (index + 1) & mask;
+                }
+                used[index] = true;
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Visitor<V> {
+        void accept(long key, V value);
+    }
+}
@@ -0,0 +1,128 @@
+package dev.dexmaster.blockdisplay;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.World;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+
+// Publishes the metrics in Prometheus text format, served over HTTP and/or written to a file.
+// Both run off the server threads and only read counters, so scrapes never touch a tick.
+final class MetricsExporter {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final BlockDisplayPlugin plugin;
+    private final PluginMetrics metrics;
+    private final DisplayIndex index;
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private ScheduledTask fileTask;
+
+    MetricsExporter(BlockDisplayPlugin plugin, PluginMetrics metrics, DisplayIndex index) {
+        this.plugin = plugin;
+        this.metrics = metrics;
+        this.index = index;
+    }
+
+    // Restarts whatever the config enables; called on enable and reload
+    void start() {
+        stop();
+        if (plugin.getConfig().getBoolean("metrics.http.enabled", false)) {
+            String bind = plugin.getConfig().getString("metrics.http.bind", "127.0.0.1");
+            int port = plugin.getConfig().getInt("metrics.http.port", 9465);
+            try {
+                server = HttpServer.create(new InetSocketAddress(bind, port), 0);
+                server.createContext("/metrics", this::handle);
+                executor = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "BlockDisplay-Metrics");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                server.setExecutor(executor);
+                server.start();
+                plugin.getLogger().info("Serving metrics on http://" + bind + ":" + port + "/metrics");
+            } catch (IOException e) {
+                stop();
+                plugin.getLogger().severe("Failed to start metrics endpoint on " + bind + ":" + port + ": " + e.getMessage());
+            }
+        }
+        if (plugin.getConfig().getBoolean("metrics.file.enabled", false)) {
+            File file = new File(plugin.getDataFolder(), plugin.getConfig().getString("metrics.file.path", "metrics.prom"));
+            long interval = Math.max(1L, plugin.getConfig().getLong("metrics.file.interval-seconds", 15L));
+            fileTask = plugin.getServer().getAsyncScheduler().runAtFixedRate(plugin, task -> writeFile(file),
+                    interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+        if (fileTask != null) {
+            fileTask.cancel();
+            fileTask = null;
+        }
+    }
+
+    String render() {
+        StringBuilder text = new StringBuilder(4096);
+        try {
+            metrics.writePrometheus(text, index, worldId -> {
+                World world = plugin.getServer().getWorld(worldId);
+                return world != null ? world.getName() : worldId.toString();
+            });
+        } catch (IOException e) {
+            // StringBuilder doesn't throw
+        }
+        return text.toString();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = render().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    // Replaced atomically so collectors never read a half-written file
+    private void writeFile(File file) {
+        try {
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (!parent.exists()) {
+                parent.mkdirs();
+            }
+            File tempFile = new File(parent, file.getName() + ".tmp");
+            Files.writeString(tempFile.toPath(), render(), StandardCharsets.UTF_8);
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            plugin.getLogger().warning("Failed to write metrics to " + file.getName() + ": " + e.getMessage());
+        }
+    }
+}
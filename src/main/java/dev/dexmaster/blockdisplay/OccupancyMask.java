@@ -0,0 +1,82 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bitset of the support blocks in one chunk, with a 4096-bit page per 16-block section
+// allocated on first use. Answers "no display here" without touching the record map.
+// Writers are serialized by the index's stripe lock; readers take no lock: pages are
+// published by replacing the whole directory and bits are read through volatile words.
+final class OccupancyMask {
+
+    private static final Pages NO_SECTIONS = new Pages(0, new AtomicLongArray[0]);
+
+    private record Pages(int minSection, AtomicLongArray[] sections) {
+    }
+
+    private volatile Pages pages = NO_SECTIONS;
+
+    boolean get(int x, int y, int z) {
+        Pages current = pages;
+        int section = (y >> 4) - current.minSection;
+        if (section < 0 || section >= current.sections.length) {
+            return false;
+        }
+        AtomicLongArray bits = current.sections[section];
+        if (bits == null) {
+            return false;
+        }
+        int i = index(x, y, z);
+        return (bits.get(i >>> 6) & (1L << i)) != 0;
+    }
+
+    void set(int x, int y, int z) {
+        AtomicLongArray bits = section(y >> 4);
+        int i = index(x, y, z);
+        bits.set(i >>> 6, bits.get(i >>> 6) | 1L << i);
+    }
+
+    void clear(int x, int y, int z) {
+        Pages current = pages;
+        int section = (y >> 4) - current.minSection;
+        if (section < 0 || section >= current.sections.length || current.sections[section] == null) {
+            return;
+        }
+        AtomicLongArray bits = current.sections[section];
+        int i = index(x, y, z);
+        bits.set(i >>> 6, bits.get(i >>> 6) & ~(1L << i));
+    }
+
+    private AtomicLongArray section(int sectionY) {
+        Pages current = pages;
+        int minSection = current.minSection;
+        AtomicLongArray[] sections = current.sections;
+        if (sections.length == 0) {
+            sections = new AtomicLongArray[1];
+            minSection = sectionY;
+        } else if (sectionY < minSection) {
+            AtomicLongArray[] grown = new AtomicLongArray[sections.length + (minSection - sectionY)];
+            System.arraycopy(sections, 0, grown, minSection - sectionY, sections.length);
+            sections = grown;
+            minSection = sectionY;
+        } else if (sectionY - minSection >= sections.length) {
+            AtomicLongArray[] grown = new AtomicLongArray[sectionY - minSection + 1];
+            System.arraycopy(sections, 0, grown, 0, sections.length);
+            sections = grown;
+        }
+        int section = sectionY - minSection;
+        if (sections[section] == null) {
+            if (sections == current.sections) {
+                sections = sections.clone();
+            }
+            sections[section] = new AtomicLongArray(64);
+        }
+        if (sections != current.sections) {
+            pages = new Pages(minSection, sections);
+        }
+        return sections[section];
+    }
+
+    private static int index(int x, int y, int z) {
+        return ((y & 15) << 8) | ((z & 15) << 4) | (x & 15);
+    }
+}
@@ -0,0 +1,205 @@
+package dev.dexmaster.blockdisplay;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Runtime counters and latency histograms, recorded from any region thread without locking
+// and read by /bd stats and the Prometheus export
+final class PluginMetrics {
+
+    // Histogram upper bounds; event handlers sit in the low microseconds, flushes in milliseconds
+    private static final long[] BOUNDS_NANOS = {
+        1_000L, 5_000L, 10_000L, 50_000L, 100_000L, 500_000L,
+        1_000_000L, 5_000_000L, 10_000_000L, 50_000_000L, 100_000_000L, 1_000_000_000L
+    };
+
+    final long startedNanos = System.nanoTime();
+
+    final LongAdder spawned = new LongAdder();
+    final LongAdder removed = new LongAdder();
+    final LongAdder sweepChecked = new LongAdder();
+    final LongAdder sweepRemoved = new LongAdder();
+    final Timer sweepSlice = new Timer();
+    final Timer flush = new Timer();
+    final LongAdder journalBytes = new LongAdder();
+    final LongAdder shardBytes = new LongAdder();
+    final LongAdder lodChanges = new LongAdder();
+
+    private final Map<String, Timer> handlers = new ConcurrentHashMap<>();
+    private final ClassValue<Timer> handlerTimers = new ClassValue<>() {
+        @Override
+        protected Timer computeValue(Class<?> type) {
+            return handlers.computeIfAbsent(type.getSimpleName(), name -> new Timer());
+        }
+    };
+    private final Map<UUID, WorldGauges> worlds = new ConcurrentHashMap<>();
+
+    static final class Timer {
+        private final LongAdder[] buckets = new LongAdder[BOUNDS_NANOS.length + 1];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        Timer() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long startNanos) {
+            long nanos = System.nanoTime() - startNanos;
+            int bucket = 0;
+            while (bucket < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket].increment();
+            count.increment();
+            totalNanos.add(nanos);
+            if (nanos > maxNanos.get()) {
+                maxNanos.accumulateAndGet(nanos, Math::max);
+            }
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        long totalNanos() {
+            return totalNanos.sum();
+        }
+
+        long maxNanos() {
+            return maxNanos.get();
+        }
+
+        long averageNanos() {
+            long n = count.sum();
+            return n == 0 ? 0L : totalNanos.sum() / n;
+        }
+    }
+
+    // Displays and entities currently linked in one world
+    static final class WorldGauges {
+        final LongAdder loaded = new LongAdder();
+        final LongAdder entities = new LongAdder();
+    }
+
+    // Records one run of the handler for this event type
+    void handled(Object event, long startNanos) {
+        handlerTimers.get(event.getClass()).record(startNanos);
+    }
+
+    Map<String, Timer> handlers() {
+        return handlers;
+    }
+
+    WorldGauges world(UUID worldId) {
+        return worlds.computeIfAbsent(worldId, id -> new WorldGauges());
+    }
+
+    Map<UUID, WorldGauges> worlds() {
+        return worlds;
+    }
+
+    // Per minute average since the plugin enabled
+    double perMinute(LongAdder counter) {
+        double minutes = Math.max(1e-9, (System.nanoTime() - startedNanos) / 60e9);
+        return counter.sum() / minutes;
+    }
+
+    // Prometheus text exposition format, version 0.0.4
+    void writePrometheus(Appendable out, DisplayIndex index, Function<UUID, String> worldNames) throws IOException {
+        List<UUID> worldIds = new ArrayList<>(index.worldIds());
+        for (UUID worldId : worlds.keySet()) {
+            if (!worldIds.contains(worldId)) {
+                worldIds.add(worldId);
+            }
+        }
+
+        gaugeHeader(out, "blockdisplay_tracked_displays", "Displays known to the index, loaded or not");
+        for (UUID worldId : worldIds) {
+            sample(out, "blockdisplay_tracked_displays", worldLabel(worldNames, worldId), index.size(worldId));
+        }
+        gaugeHeader(out, "blockdisplay_loaded_displays", "Displays currently rendered by an entity");
+        for (UUID worldId : worldIds) {
+            WorldGauges gauges = worlds.get(worldId);
+            sample(out, "blockdisplay_loaded_displays", worldLabel(worldNames, worldId), gauges != null ? gauges.loaded.sum() : 0L);
+        }
+        gaugeHeader(out, "blockdisplay_entities", "Display entities, one per merged cuboid");
+        for (UUID worldId : worldIds) {
+            WorldGauges gauges = worlds.get(worldId);
+            sample(out, "blockdisplay_entities", worldLabel(worldNames, worldId), gauges != null ? gauges.entities.sum() : 0L);
+        }
+
+        counter(out, "blockdisplay_spawned_total", "Displays spawned by commands and fills", spawned.sum());
+        counter(out, "blockdisplay_removed_total", "Displays removed for any reason", removed.sum());
+        counter(out, "blockdisplay_failsafe_checked_total", "Displays verified by the failsafe sweep", sweepChecked.sum());
+        counter(out, "blockdisplay_failsafe_removed_total", "Displays the failsafe sweep found broken and removed", sweepRemoved.sum());
+        histogram(out, "blockdisplay_failsafe_slice_seconds", "Time spent verifying one chunk slice", "", sweepSlice);
+        counter(out, "blockdisplay_lod_changes_total", "Chunks whose displays were re-styled for a new level of detail", lodChanges.sum());
+
+        counter(out, "blockdisplay_persistence_journal_bytes_total", "Bytes appended to the display journal", journalBytes.sum());
+        counter(out, "blockdisplay_persistence_shard_bytes_total", "Bytes written to region files", shardBytes.sum());
+        histogram(out, "blockdisplay_persistence_flush_seconds", "Time spent folding the journal into region files", "", flush);
+
+        out.append("# HELP blockdisplay_event_handler_seconds Time spent in the plugin's event handlers\n");
+        out.append("# TYPE blockdisplay_event_handler_seconds histogram\n");
+        for (Map.Entry<String, Timer> handler : handlers.entrySet()) {
+            histogramSamples(out, "blockdisplay_event_handler_seconds", "event=\"" + handler.getKey() + "\"", handler.getValue());
+        }
+    }
+
+    private static String worldLabel(Function<UUID, String> worldNames, UUID worldId) {
+        return "world=\"" + escape(worldNames.apply(worldId)) + "\"";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static void gaugeHeader(Appendable out, String name, String help) throws IOException {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" gauge\n");
+    }
+
+    private static void counter(Appendable out, String name, String help, long value) throws IOException {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(Long.toString(value)).append('\n');
+    }
+
+    private static void sample(Appendable out, String name, String labels, long value) throws IOException {
+        out.append(name).append('{').append(labels).append("} ").append(Long.toString(value)).append('\n');
+    }
+
+    private static void histogram(Appendable out, String name, String help, String labels, Timer timer) throws IOException {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" histogram\n");
+        histogramSamples(out, name, labels, timer);
+    }
+
+    private static void histogramSamples(Appendable out, String name, String labels, Timer timer) throws IOException {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0L;
+        for (int i = 0; i < timer.buckets.length; i++) {
+            cumulative += timer.buckets[i].sum();
+            String le = i < BOUNDS_NANOS.length ? seconds(BOUNDS_NANOS[i]) : "+Inf";
+            out.append(name).append("_bucket{").append(prefix).append("le=\"").append(le).append("\"} ")
+                    .append(Long.toString(cumulative)).append('\n');
+        }
+        String suffix = labels.isEmpty() ? "" : "{" + labels + "}";
+        out.append(name).append("_sum").append(suffix).append(' ').append(seconds(timer.totalNanos())).append('\n');
+        out.append(name).append("_count").append(suffix).append(' ').append(Long.toString(cumulative)).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+}
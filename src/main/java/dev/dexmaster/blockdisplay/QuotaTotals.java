@@ -0,0 +1,39 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Stored displays per world name and per owner UUID. Saved as quotas.json by the journal, with
+// the generation of the first journal whose changes it doesn't include yet.
+final class QuotaTotals {
+
+    long generation;
+    Map<String, Integer> worlds = new HashMap<>();
+    Map<String, Integer> players = new HashMap<>();
+
+    // A null owner only counts towards the world; totals never go below zero
+    void add(String world, String owner, int delta) {
+        worlds.put(world, Math.max(0, worlds.getOrDefault(world, 0) + delta));
+        if (owner != null) {
+            players.put(owner, Math.max(0, players.getOrDefault(owner, 0) + delta));
+        }
+    }
+
+    // What has to be added to this to get the other totals
+    QuotaTotals difference(QuotaTotals other) {
+        QuotaTotals difference = new QuotaTotals();
+        other.worlds.forEach((world, count) -> difference.worlds.put(world, count));
+        other.players.forEach((player, count) -> difference.players.put(player, count));
+        worlds.forEach((world, count) -> difference.worlds.merge(world, -count, Integer::sum));
+        players.forEach((player, count) -> difference.players.merge(player, -count, Integer::sum));
+        return difference;
+    }
+
+    QuotaTotals copy() {
+        QuotaTotals copy = new QuotaTotals();
+        copy.generation = generation;
+        copy.worlds.putAll(worlds);
+        copy.players.putAll(players);
+        return copy;
+    }
+}
@@ -0,0 +1,78 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.World;
+
+// Reads region shards on the async scheduler as soon as a chunk of the region loads, so region
+// threads rarely wait on disk. Each chunk's displays go into the index only when that chunk
+// asks for them, on the thread owning it.
+final class RegionLoader {
+
+    private static final CompletableFuture<Void> READ = CompletableFuture.completedFuture(null);
+
+    private record Shard(UUID worldId, long regionKey) {
+    }
+
+    private final BlockDisplayPlugin plugin;
+    private final DisplayIndex index;
+    // Reads in flight
+    private final ConcurrentHashMap<Shard, CompletableFuture<Void>> reads = new ConcurrentHashMap<>();
+    // Bumped on disable so reads finishing afterwards are dropped
+    private volatile int generation;
+
+    RegionLoader(BlockDisplayPlugin plugin, DisplayIndex index) {
+        this.plugin = plugin;
+        this.index = index;
+    }
+
+    // Starts reading the chunk's region unless it was read already; completes once the index has it
+    CompletableFuture<Void> prefetch(World world, int chunkX, int chunkZ) {
+        UUID worldId = world.getUID();
+        long regionKey = RegionShard.regionKeyOfChunk(chunkX, chunkZ);
+        if (index.isRegionRead(worldId, regionKey)) {
+            return READ;
+        }
+        Shard shard = new Shard(worldId, regionKey);
+        CompletableFuture<Void> read = new CompletableFuture<>();
+        CompletableFuture<Void> running = reads.putIfAbsent(shard, read);
+        if (running != null) {
+            return running;
+        }
+        int started = generation;
+        plugin.getServer().getAsyncScheduler().runNow(plugin, task -> {
+            List<DisplayRecord> records;
+            try {
+                records = plugin.readRegion(world, regionKey);
+            } catch (Exception e) {
+                plugin.getLogger().severe("Failed to load displays for region " + BlockKey.chunkX(regionKey) + ", "
+                        + BlockKey.chunkZ(regionKey) + " in " + world.getName() + ": " + e.getMessage());
+                records = List.of();
+            }
+            if (generation == started) {
+                index.addRegion(worldId, regionKey, records);
+            }
+            reads.remove(shard, read);
+            read.complete(null);
+        });
+        return read;
+    }
+
+    // Puts the chunk's stored displays into the index and returns the bucket they went to, or null.
+    // Waits for the region's read only if its prefetch hasn't finished yet.
+    ChunkBucket load(World world, int chunkX, int chunkZ) {
+        if (index.isChunkLoaded(world.getUID(), chunkX, chunkZ)) {
+            return null;
+        }
+        prefetch(world, chunkX, chunkZ).join();
+        return index.loadChunk(world.getUID(), chunkX, chunkZ);
+    }
+
+    void clear() {
+        generation++;
+        reads.clear();
+    }
+}
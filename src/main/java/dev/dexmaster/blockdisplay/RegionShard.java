@@ -0,0 +1,259 @@
+package dev.dexmaster.blockdisplay;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Binary storage for the displays of one world region (32x32 chunks).
+//
+// Layout:
+//   int magic, byte version
+//   varint n, n x UTF-8 string       interned color, material, template, audience and owner names ("" = unknown / default / everyone / none)
+//   varint n, n x 3 doubles          interned offset triples
+//   varint n, n x (varint localChunk, varint count, varint bodyOffset)   chunk index
+//   body: per display  byte (localX << 4 | localZ), zigzag varint y,
+//                      varint color, varint material, varint offset, varint template, varint audience, varint owner
+final class RegionShard {
+
+    static final int REGION_SHIFT = 5; // chunks per region side = 32
+    private static final int MAGIC = 0x42445231; // "BDR1"
+    private static final byte VERSION = 1;
+
+    private RegionShard() {
+    }
+
+    static long regionKeyOf(long blockKey) {
+        return BlockKey.chunkKey(BlockKey.x(blockKey) >> 4 >> REGION_SHIFT, BlockKey.z(blockKey) >> 4 >> REGION_SHIFT);
+    }
+
+    static long regionKeyOfChunk(int chunkX, int chunkZ) {
+        return BlockKey.chunkKey(chunkX >> REGION_SHIFT, chunkZ >> REGION_SHIFT);
+    }
+
+    private static File file(File worldFolder, long regionKey) {
+        return new File(worldFolder, "r." + BlockKey.chunkX(regionKey) + "." + BlockKey.chunkZ(regionKey) + ".bdr");
+    }
+
+    static List<DisplayData> read(File worldFolder, String world, long regionKey) throws IOException {
+        File file = file(worldFolder, regionKey);
+        if (!file.exists()) {
+            return new ArrayList<>();
+        }
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Stream the whole shard in; shards are small and read once per session
+            }
+            buffer.flip();
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Unrecognized region shard " + file.getName());
+            }
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported region shard version " + version + " in " + file.getName());
+            }
+            String[] names = new String[readVarInt(buffer)];
+            for (int i = 0; i < names.length; i++) {
+                byte[] bytes = new byte[readVarInt(buffer)];
+                buffer.get(bytes);
+                names[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            double[] offsets = new double[readVarInt(buffer) * 3];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = buffer.getDouble();
+            }
+
+            int chunkCount = readVarInt(buffer);
+            int[] localChunks = new int[chunkCount];
+            int[] counts = new int[chunkCount];
+            int[] bodyOffsets = new int[chunkCount];
+            int total = 0;
+            for (int i = 0; i < chunkCount; i++) {
+                localChunks[i] = readVarInt(buffer);
+                counts[i] = readVarInt(buffer);
+                bodyOffsets[i] = readVarInt(buffer);
+                total += counts[i];
+            }
+            int bodyStart = buffer.position();
+
+            int regionX = BlockKey.chunkX(regionKey);
+            int regionZ = BlockKey.chunkZ(regionKey);
+
+            List<DisplayData> displays = new ArrayList<>(total);
+            for (int i = 0; i < chunkCount; i++) {
+                // Jump straight to the chunk's records through the index
+                buffer.position(bodyStart + bodyOffsets[i]);
+                int baseX = ((regionX << REGION_SHIFT) + (localChunks[i] & 31)) << 4;
+                int baseZ = ((regionZ << REGION_SHIFT) + (localChunks[i] >> REGION_SHIFT)) << 4;
+                for (int j = 0; j < counts[i]; j++) {
+                    int local = buffer.get() & 0xFF;
+                    DisplayData data = new DisplayData();
+                    data.world = world;
+                    data.x = baseX + (local >> 4);
+                    data.z = baseZ + (local & 15);
+                    data.y = zigZagDecode(readVarInt(buffer));
+                    data.glowColor = names[readVarInt(buffer)];
+                    String material = names[readVarInt(buffer)];
+                    data.material = material.isEmpty() ? null : material;
+                    int offset = readVarInt(buffer) * 3;
+                    data.offsetX = offsets[offset];
+                    data.offsetY = offsets[offset + 1];
+                    data.offsetZ = offsets[offset + 2];
+                    String template = names[readVarInt(buffer)];
+                    data.template = template.isEmpty() ? null : template;
+                    String audience = names[readVarInt(buffer)];
+                    data.audience = audience.isEmpty() ? null : audience;
+                    String owner = names[readVarInt(buffer)];
+                    data.owner = owner.isEmpty() ? null : owner;
+                    displays.add(data);
+                }
+            }
+            return displays;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Corrupt region shard " + file.getName(), e);
+        }
+    }
+
+    static LongKeyMap<DisplayData> readByBlock(File worldFolder, String world, long regionKey) throws IOException {
+        List<DisplayData> displays = read(worldFolder, world, regionKey);
+        LongKeyMap<DisplayData> byBlock = new LongKeyMap<>(displays.size());
+        for (DisplayData data : displays) {
+            byBlock.put(BlockKey.pack(data.x, data.y, data.z), data);
+        }
+        return byBlock;
+    }
+
+    // Writes to a temp file and atomically replaces the shard; an empty region deletes it.
+    // Returns the number of bytes written.
+    static long write(File worldFolder, long regionKey, LongKeyMap<DisplayData> displays) throws IOException {
+        File file = file(worldFolder, regionKey);
+        if (displays.isEmpty()) {
+            if (file.exists() && !file.delete()) {
+                throw new IOException("Could not delete empty region shard " + file.getName());
+            }
+            return 0L;
+        }
+
+        // Group by local chunk and intern the repeated values
+        Map<Integer, List<DisplayData>> chunks = new HashMap<>();
+        Map<String, Integer> names = new HashMap<>();
+        List<String> nameTable = new ArrayList<>();
+        Map<List<Double>, Integer> offsets = new HashMap<>();
+        List<double[]> offsetTable = new ArrayList<>();
+        displays.forEach((key, data) -> {
+            int localChunk = (((data.z >> 4) & 31) << REGION_SHIFT) | ((data.x >> 4) & 31);
+            chunks.computeIfAbsent(localChunk, k -> new ArrayList<>()).add(data);
+            intern(names, nameTable, data.glowColor);
+            intern(names, nameTable, data.material != null ? data.material : "");
+            intern(names, nameTable, data.template != null ? data.template : "");
+            intern(names, nameTable, data.audience != null ? data.audience : "");
+            intern(names, nameTable, data.owner != null ? data.owner : "");
+            List<Double> triple = List.of(data.offsetX, data.offsetY, data.offsetZ);
+            if (!offsets.containsKey(triple)) {
+                offsets.put(triple, offsetTable.size());
+                offsetTable.add(new double[] {data.offsetX, data.offsetY, data.offsetZ});
+            }
+        });
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream bodyOut = new DataOutputStream(body);
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream headerOut = new DataOutputStream(header);
+
+        headerOut.writeInt(MAGIC);
+        headerOut.writeByte(VERSION);
+        writeVarInt(headerOut, nameTable.size());
+        for (String name : nameTable) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(headerOut, bytes.length);
+            headerOut.write(bytes);
+        }
+        writeVarInt(headerOut, offsetTable.size());
+        for (double[] triple : offsetTable) {
+            headerOut.writeDouble(triple[0]);
+            headerOut.writeDouble(triple[1]);
+            headerOut.writeDouble(triple[2]);
+        }
+
+        writeVarInt(headerOut, chunks.size());
+        for (Map.Entry<Integer, List<DisplayData>> chunk : chunks.entrySet()) {
+            writeVarInt(headerOut, chunk.getKey());
+            writeVarInt(headerOut, chunk.getValue().size());
+            writeVarInt(headerOut, bodyOut.size());
+            for (DisplayData data : chunk.getValue()) {
+                bodyOut.writeByte(((data.x & 15) << 4) | (data.z & 15));
+                writeVarInt(bodyOut, zigZagEncode(data.y));
+                writeVarInt(bodyOut, names.get(data.glowColor));
+                writeVarInt(bodyOut, names.get(data.material != null ? data.material : ""));
+                writeVarInt(bodyOut, offsets.get(List.of(data.offsetX, data.offsetY, data.offsetZ)));
+                writeVarInt(bodyOut, names.get(data.template != null ? data.template : ""));
+                writeVarInt(bodyOut, names.get(data.audience != null ? data.audience : ""));
+                writeVarInt(bodyOut, names.get(data.owner != null ? data.owner : ""));
+            }
+        }
+
+        if (!worldFolder.exists()) {
+            worldFolder.mkdirs();
+        }
+        File tempFile = new File(worldFolder, file.getName() + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(tempFile)) {
+            header.writeTo(stream);
+            body.writeTo(stream);
+            stream.getFD().sync();
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return header.size() + body.size();
+    }
+
+    private static void intern(Map<String, Integer> names, List<String> table, String name) {
+        if (!names.containsKey(name)) {
+            names.put(name, table.size());
+            table.add(name);
+        }
+    }
+
+    private static int zigZagEncode(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int zigZagDecode(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("VarInt too long");
+    }
+}
@@ -0,0 +1,68 @@
+package dev.dexmaster.blockdisplay;
+
+import java.util.ArrayDeque;
+
+import org.bukkit.World;
+
+// Re-meshes chunks once their displays have stopped changing for a while, so bulk spawns
+// settle into merged cuboids instead of re-meshing the chunk on every single spawn.
+// Due chunks are picked on the global tick and re-meshed on the region owning them.
+final class RemeshQueue implements Runnable {
+
+    private final BlockDisplayPlugin plugin;
+    private final ArrayDeque<ChunkBucket> queue = new ArrayDeque<>();
+
+    private int chunksPerTick;
+    private int delayTicks;
+    private long tick;
+
+    RemeshQueue(BlockDisplayPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    synchronized void configure(int chunksPerTick, int delayTicks) {
+        this.chunksPerTick = Math.max(1, chunksPerTick);
+        this.delayTicks = Math.max(1, delayTicks);
+    }
+
+    // Restarts the chunk's quiet period
+    synchronized void markDirty(ChunkBucket bucket) {
+        bucket.lastChangeTick = tick;
+        if (!bucket.remeshQueued) {
+            bucket.remeshQueued = true;
+            queue.addLast(bucket);
+        }
+    }
+
+    synchronized void clear() {
+        for (ChunkBucket bucket : queue) {
+            bucket.remeshQueued = false;
+        }
+        queue.clear();
+    }
+
+    @Override
+    public synchronized void run() {
+        tick++;
+        if (queue.isEmpty()) {
+            return;
+        }
+
+        // Chunks changed again since they were queued rotate to the back
+        int dispatched = 0;
+        int remaining = queue.size();
+        while (remaining-- > 0 && dispatched < chunksPerTick) {
+            ChunkBucket bucket = queue.pollFirst();
+            if (tick - bucket.lastChangeTick < delayTicks) {
+                queue.addLast(bucket);
+                continue;
+            }
+            bucket.remeshQueued = false;
+            World world = plugin.getServer().getWorld(bucket.worldId);
+            if (world != null) {
+                plugin.runAtChunk(world, bucket.chunkX(), bucket.chunkZ(), () -> plugin.remeshChunk(world, bucket));
+                dispatched++;
+            }
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package dev.dexmaster.blockdisplay;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import org.bukkit.Chunk;
+import org.bukkit.ExplosionResult;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.BlockDisplay;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.TNTPrimed;
+import org.bukkit.event.Event;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPistonExtendEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.EntitiesLoadEvent;
+import org.bukkit.event.world.EntitiesUnloadEvent;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.util.BoundingBox;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.mockbukkit.mockbukkit.MockBukkit;
+import org.mockbukkit.mockbukkit.ServerMock;
+import org.mockbukkit.mockbukkit.entity.PlayerMock;
+import org.mockbukkit.mockbukkit.world.WorldMock;
+
+// Boots the real plugin on a mock server, fills a world with displays through the service API and
+// replays storms through the plugin manager: TNT explosions, a piston farm, a block-break burst,
+// chunk unload/load churn and disable/enable cycles. Paper provides the region schedulers outside
+// Folia too, and so does the mock server, so the plugin boots unchanged.
+// After each storm every tracked display must be rendered by exactly one entity, every display
+// entity must render tracked displays only, and the tracked set must match what the storm left.
+// Handler time per storm tick is checked against storm-baseline.properties only on request
+// (-Dstorm.check), so ordinary builds don't depend on the machine's wall-clock time.
+class EventStormTest {
+
+    // A square floor of 4-high columns, so full chunks hold 1024 displays like a highlighted build
+    private static final int MIN_Y = 64;
+    private static final int HEIGHT = 4;
+    // Storm ticks per test and events per tick
+    private static final int ROUNDS = 8;
+    private static final int EXPLOSIONS = 64;
+    private static final int RADIUS = 3;
+    private static final int PISTONS = 256;
+    private static final int PUSH_LIMIT = 12;
+    private static final int BREAKS = 1024;
+    private static final int CHUNKS = 64;
+    private static final int RESTARTS = 3;
+    // Ticks a batch or a settle may take before the test gives up on it
+    private static final int MAX_TICKS = 20_000;
+
+    private static final Properties BASELINE = readBaseline();
+    private static final Map<String, Long> RECORDED = new HashMap<>();
+
+    private ServerMock server;
+    private BlockDisplayPlugin plugin;
+    private WorldMock world;
+    private PlayerMock player;
+    private int side;
+    // Support blocks that should carry a display, by block key
+    private final Set<Long> expected = new HashSet<>();
+
+    // -Dstorm.displays=1000,20000,1000000 picks the populations
+    static IntStream populations() {
+        return Arrays.stream(System.getProperty("storm.displays", "1000,20000").split(","))
+                .mapToInt(value -> Integer.parseInt(value.trim()));
+    }
+
+    private void boot(int displays) {
+        server = MockBukkit.mock();
+        world = server.addSimpleWorld("storm");
+        plugin = MockBukkit.load(BlockDisplayPlugin.class);
+        player = server.addPlayer();
+
+        side = (int) Math.ceil(Math.sqrt((double) displays / HEIGHT));
+        List<Block> blocks = new ArrayList<>(displays);
+        for (int i = 0; i < displays; i++) {
+            int column = i / HEIGHT;
+            Block block = world.getBlockAt(column % side, MIN_Y + i % HEIGHT, column / side);
+            block.setType(Material.STONE);
+            blocks.add(block);
+            expected.add(key(block));
+        }
+        for (int chunkX = 0; chunkX <= side >> 4; chunkX++) {
+            for (int chunkZ = 0; chunkZ <= side >> 4; chunkZ++) {
+                world.getChunkAt(chunkX, chunkZ).load();
+            }
+        }
+        int spawned = await(service().spawnAll(blocks, null));
+        assertEquals(displays, spawned, "displays spawned");
+        verify();
+    }
+
+    @AfterEach
+    void shutdown() throws IOException {
+        MockBukkit.unmock();
+        // -Dstorm.record=<file> writes what this run measured, to be copied over the baseline
+        String record = System.getProperty("storm.record");
+        if (record != null && !RECORDED.isEmpty()) {
+            Properties measured = new Properties();
+            File file = new File(record);
+            if (file.exists()) {
+                try (Reader in = new FileReader(file)) {
+                    measured.load(in);
+                }
+            }
+            RECORDED.forEach((name, micros) -> measured.setProperty(name, Long.toString(micros)));
+            file.getParentFile().mkdirs();
+            try (Writer out = new FileWriter(file)) {
+                measured.store(out, "Handler microseconds per storm tick");
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("populations")
+    void tntStorm(int displays) {
+        boot(displays);
+        SplittableRandom random = new SplittableRandom(42);
+        long nanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            List<EntityExplodeEvent> events = new ArrayList<>(EXPLOSIONS);
+            for (int i = 0; i < EXPLOSIONS; i++) {
+                Location center = new Location(world, random.nextInt(side), MIN_Y + random.nextInt(HEIGHT), random.nextInt(side));
+                TNTPrimed tnt = world.spawn(center, TNTPrimed.class);
+                events.add(new EntityExplodeEvent(tnt, center, sphere(center), 1f, ExplosionResult.DESTROY));
+            }
+            nanos += fire(events);
+            // The explosion goes through once every handler saw it
+            for (EntityExplodeEvent event : events) {
+                for (Block block : event.blockList()) {
+                    destroy(block);
+                }
+                event.getEntity().remove();
+            }
+            tick();
+        }
+        verify();
+        check("tnt", displays, nanos / ROUNDS);
+    }
+
+    @ParameterizedTest
+    @MethodSource("populations")
+    void pistonStorm(int displays) {
+        boot(displays);
+        SplittableRandom random = new SplittableRandom(42);
+        long nanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            // Most pistons in a farm push blocks next to the displays rather than their supports
+            for (int i = 0; i < PISTONS; i++) {
+                BlockFace direction = (i & 1) == 0 ? BlockFace.EAST : BlockFace.SOUTH;
+                Block piston = world.getBlockAt(random.nextInt(side) - 1, MIN_Y - 2 + random.nextInt(HEIGHT + 4), random.nextInt(side) - 1);
+                List<Block> line = pushed(piston, direction);
+                if (line == null) {
+                    continue;
+                }
+                BlockPistonExtendEvent event = new BlockPistonExtendEvent(piston, line, direction);
+                nanos += fire(List.of(event));
+                push(line, direction);
+            }
+            tick();
+        }
+        verify();
+        check("piston", displays, nanos / ROUNDS);
+    }
+
+    @ParameterizedTest
+    @MethodSource("populations")
+    void breakBurst(int displays) {
+        boot(displays);
+        SplittableRandom random = new SplittableRandom(42);
+        long nanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            List<BlockBreakEvent> events = new ArrayList<>(BREAKS);
+            for (int i = 0; i < BREAKS; i++) {
+                Block block = world.getBlockAt(random.nextInt(side), MIN_Y + random.nextInt(HEIGHT), random.nextInt(side));
+                events.add(new BlockBreakEvent(block, player));
+            }
+            nanos += fire(events);
+            for (BlockBreakEvent event : events) {
+                destroy(event.getBlock());
+            }
+            tick();
+        }
+        verify();
+        check("break", displays, nanos / ROUNDS);
+    }
+
+    @ParameterizedTest
+    @MethodSource("populations")
+    void chunkChurn(int displays) {
+        boot(displays);
+        int chunks = (side >> 4) + 1;
+        long nanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            List<Event> unloads = new ArrayList<>();
+            List<Event> loads = new ArrayList<>();
+            for (int i = 0; i < Math.min(CHUNKS, chunks * chunks); i++) {
+                int index = (round * CHUNKS + i) % (chunks * chunks);
+                Chunk chunk = world.getChunkAt(index % chunks, index / chunks);
+                // The entities are saved with the chunk and come back with it
+                List<Entity> entities = entitiesIn(chunk);
+                unloads.add(new EntitiesUnloadEvent(chunk, entities));
+                unloads.add(new ChunkUnloadEvent(chunk));
+                loads.add(new ChunkLoadEvent(chunk, false));
+                loads.add(new EntitiesLoadEvent(chunk, entities));
+            }
+            nanos += fire(unloads);
+            tick();
+            nanos += fire(loads);
+            tick();
+        }
+        verify();
+        check("churn", displays, nanos / ROUNDS);
+    }
+
+    @ParameterizedTest
+    @MethodSource("populations")
+    void restartCycles(int displays) {
+        boot(displays);
+        long nanos = 0;
+        for (int i = 0; i < RESTARTS; i++) {
+            server.getPluginManager().disablePlugin(plugin);
+            long start = System.nanoTime();
+            server.getPluginManager().enablePlugin(plugin);
+            nanos += System.nanoTime() - start;
+            // Entities stayed in the world and are adopted, nothing may be spawned twice
+            verify();
+        }
+        check("restart", displays, nanos / RESTARTS);
+    }
+
+    private BlockDisplayService service() {
+        BlockDisplayService service = server.getServicesManager().load(BlockDisplayService.class);
+        assertNotNull(service, "BlockDisplayService registered");
+        return service;
+    }
+
+    private long fire(List<? extends Event> events) {
+        long start = System.nanoTime();
+        for (Event event : events) {
+            server.getPluginManager().callEvent(event);
+        }
+        return System.nanoTime() - start;
+    }
+
+    // One server tick, with the background reads it started finished
+    private void tick() {
+        server.getScheduler().performOneTick();
+        server.getScheduler().waitAsyncTasksFinished();
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        for (int i = 0; i < MAX_TICKS && !future.isDone(); i++) {
+            tick();
+        }
+        assertTrue(future.isDone(), "batch finished within " + MAX_TICKS + " ticks");
+        return future.join();
+    }
+
+    // Explosion block lists hold the blocks the blast destroys; the server leaves air out of them
+    private List<Block> sphere(Location center) {
+        List<Block> blocks = new ArrayList<>();
+        for (int dx = -RADIUS; dx <= RADIUS; dx++) {
+            for (int dy = -RADIUS; dy <= RADIUS; dy++) {
+                for (int dz = -RADIUS; dz <= RADIUS; dz++) {
+                    if (dx * dx + dy * dy + dz * dz > RADIUS * RADIUS) {
+                        continue;
+                    }
+                    Block block = world.getBlockAt(center.getBlockX() + dx, center.getBlockY() + dy, center.getBlockZ() + dz);
+                    if (!block.getType().isAir()) {
+                        blocks.add(block);
+                    }
+                }
+            }
+        }
+        return blocks;
+    }
+
+    private void destroy(Block block) {
+        block.setType(Material.AIR);
+        expected.remove(key(block));
+    }
+
+    // The blocks a piston in front of the row moves, or null when it pushes nothing or is blocked
+    private List<Block> pushed(Block piston, BlockFace direction) {
+        List<Block> line = new ArrayList<>();
+        Block next = piston.getRelative(direction);
+        while (!next.getType().isAir()) {
+            if (line.size() == PUSH_LIMIT) {
+                return null;
+            }
+            line.add(next);
+            next = next.getRelative(direction);
+        }
+        return line.isEmpty() ? null : line;
+    }
+
+    // Moves the row one block on, front first, carrying the displays along
+    private void push(List<Block> line, BlockFace direction) {
+        for (int i = line.size() - 1; i >= 0; i--) {
+            Block block = line.get(i);
+            Block target = block.getRelative(direction);
+            target.setType(block.getType());
+            block.setType(Material.AIR);
+            if (expected.remove(key(block))) {
+                expected.add(key(target));
+            }
+        }
+    }
+
+    private List<Entity> entitiesIn(Chunk chunk) {
+        List<Entity> entities = new ArrayList<>();
+        for (BlockDisplay display : world.getEntitiesByClass(BlockDisplay.class)) {
+            Location location = display.getLocation();
+            if (location.getBlockX() >> 4 == chunk.getX() && location.getBlockZ() >> 4 == chunk.getZ()) {
+                entities.add(display);
+            }
+        }
+        return entities;
+    }
+
+    // Every tracked display is rendered by exactly one entity, every entity renders tracked
+    // displays only, and the tracked set is what the storm left standing
+    private void verify() {
+        for (int i = 0; i < 20; i++) {
+            tick();
+        }
+        // Pistons only push east and south, the box reaches a chunk past the furthest display
+        int maxX = side, maxZ = side;
+        for (long key : expected) {
+            maxX = Math.max(maxX, BlockKey.x(key));
+            maxZ = Math.max(maxZ, BlockKey.z(key));
+        }
+        BoundingBox box = new BoundingBox(-16, world.getMinHeight(), -16, maxX + 16, world.getMaxHeight(), maxZ + 16);
+        List<DisplayInfo> tracked = await(service().query(world, box));
+        Set<Long> keys = new HashSet<>();
+        for (DisplayInfo info : tracked) {
+            if (!keys.add(BlockKey.pack(info.x(), info.y(), info.z()))) {
+                fail("Display at " + info.x() + ", " + info.y() + ", " + info.z() + " is tracked twice");
+            }
+        }
+        assertEquals(expected.size(), keys.size(), "tracked displays");
+        assertEquals(expected, keys, "tracked displays are the ones the storm left");
+
+        NamespacedKey supportTag = new NamespacedKey(plugin, "support");
+        NamespacedKey sizeTag = new NamespacedKey(plugin, "size");
+        Set<Long> rendered = new HashSet<>();
+        for (BlockDisplay display : world.getEntitiesByClass(BlockDisplay.class)) {
+            PersistentDataContainer tags = display.getPersistentDataContainer();
+            Long support = tags.get(supportTag, PersistentDataType.LONG);
+            if (support == null) {
+                fail("Display entity at " + display.getLocation() + " carries no support tag");
+            }
+            int[] size = tags.getOrDefault(sizeTag, PersistentDataType.INTEGER_ARRAY, new int[] {1, 1, 1});
+            int minX = BlockKey.x(support), minY = BlockKey.y(support), minZ = BlockKey.z(support);
+            for (int x = minX; x < minX + size[0]; x++) {
+                for (int y = minY; y < minY + size[1]; y++) {
+                    for (int z = minZ; z < minZ + size[2]; z++) {
+                        long key = BlockKey.pack(x, y, z);
+                        if (!keys.contains(key)) {
+                            fail("Orphaned entity renders untracked block " + x + ", " + y + ", " + z);
+                        }
+                        if (!rendered.add(key)) {
+                            fail("Display at " + x + ", " + y + ", " + z + " is rendered twice");
+                        }
+                    }
+                }
+            }
+        }
+        assertEquals(keys.size(), rendered.size(), "tracked displays with an entity");
+        // Displays set their own glow color, the team older versions filled must be gone
+        assertNull(server.getScoreboardManager().getMainScoreboard().getTeam("blockdisplay_glow"), "legacy glow team");
+    }
+
+    // With -Dstorm.check, fails when the mean handler time per storm tick exceeds the baseline by
+    // more than the tolerance (-Dstorm.tolerance, 1.5 by default), or when there is no baseline
+    // recorded for the storm and population
+    private static void check(String storm, int displays, long nanosPerTick) {
+        String name = storm + "." + displays;
+        long micros = nanosPerTick / 1000;
+        RECORDED.put(name, micros);
+        if (System.getProperty("storm.check") == null || System.getProperty("storm.record") != null) {
+            return;
+        }
+        String baseline = BASELINE.getProperty(name);
+        assertNotNull(baseline, "no baseline for " + name + ", record one with -PstormRecord on the reference machine");
+        double tolerance = Double.parseDouble(System.getProperty("storm.tolerance", "1.5"));
+        long limit = (long) (Long.parseLong(baseline) * tolerance);
+        assertTrue(micros <= limit, name + " took " + micros + " us per tick, baseline " + baseline + " us x " + tolerance);
+    }
+
+    private static Properties readBaseline() {
+        Properties baseline = new Properties();
+        try (InputStream in = EventStormTest.class.getResourceAsStream("/storm-baseline.properties")) {
+            if (in != null) {
+                baseline.load(in);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read storm-baseline.properties", e);
+        }
+        return baseline;
+    }
+
+    private static long key(Block block) {
+        return BlockKey.pack(block.getX(), block.getY(), block.getZ());
+    }
+}